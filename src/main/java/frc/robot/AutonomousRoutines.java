@@ -13,11 +13,23 @@ import frc.robot.commands.ElevatorCommands.*;
 import frc.robot.subsystems.*;
 
 public final class AutonomousRoutines {
+	public static final String shootHighDriveOut = "shoot high, drive out of community";
+	public static final String shootHighBalance = "shoot high, balance";
+	public static final String shootHighDriveOverBalance = "shoot high, drive over, balance";
+
+	/// Every routine in the chooser, by name
+	public static final String[] routines = { shootHighDriveOut, shootHighBalance, shootHighDriveOverBalance };
+
+	/// Whether `routine` ends on the charge station, balancing until autonomous is over
+	public static boolean balances(String routine) {
+		return routine.equals(shootHighBalance) || routine.equals(shootHighDriveOverBalance);
+	}
+
 	public static SendableChooser<Command> createAutonomousChooser(final Drivetrain drivetrain, final Elevator elevator, final Arm arm, final Intake intake) {
 		final SendableChooser<Command> chooser = new SendableChooser<>();
 
 		chooser.addOption(
-			"shoot high, drive out of community",
+			AutonomousRoutines.shootHighDriveOut,
 			new SequentialCommandGroup(
 				new InitializeElevator(elevator),
 				new ElevatorGoToHeight(elevator, ElevatorConstants.highHeight),
@@ -34,7 +46,7 @@ public final class AutonomousRoutines {
 		);
 
 		chooser.addOption(
-			"shoot high, balance",
+			AutonomousRoutines.shootHighBalance,
 			new SequentialCommandGroup(
 				new InitializeElevator(elevator),
 				new ElevatorGoToHeight(elevator, ElevatorConstants.highHeight),
@@ -52,7 +64,7 @@ public final class AutonomousRoutines {
 		);
 
 		chooser.setDefaultOption(
-			"shoot high, drive over, balance",
+			AutonomousRoutines.shootHighDriveOverBalance,
 			new SequentialCommandGroup(
 				new InitializeElevator(elevator),
 				new ElevatorGoToHeight(elevator, ElevatorConstants.highHeight),
@@ -64,7 +76,7 @@ public final class AutonomousRoutines {
 				//new DriveDistance(-.3, -1 * DrivetrainConstants.honeToHighDistance, drivetrain),
 				new ParallelCommandGroup(
 					new StashIntake(elevator, arm),
-					new InstantCommand(() -> Log.writeln("stashed")),
+					new InstantCommand(() -> Log.event("Stashed")),
 					new SequentialCommandGroup(new WaitCommand(1), new DriveDistance(-.35, -3, drivetrain))),
 				new WaitCommand(.75),
 				new DriveDistance(.35, 1.8, drivetrain),
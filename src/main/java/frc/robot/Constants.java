@@ -7,7 +7,10 @@ import java.util.HashMap;
 
 import javax.imageio.ImageIO;
 
+import com.ctre.phoenix.motorcontrol.FeedbackDevice;
+
 import edu.wpi.first.math.controller.SimpleMotorFeedforward;
+import edu.wpi.first.math.geometry.Transform3d;
 import edu.wpi.first.math.kinematics.DifferentialDriveKinematics;
 import edu.wpi.first.math.trajectory.*;
 import edu.wpi.first.math.trajectory.constraint.DifferentialDriveVoltageConstraint;
@@ -109,6 +112,66 @@ public final class Constants {
 		public static final int ArmEncoder = 5;
 	}
 
+	public static final class DeviceConfigConstants {
+		// How long each config call waits for the device to acknowledge it
+		public static final int timeoutMs = 100;
+		// Tries per step, and per batch when the readback does not match
+		public static final int attempts = 3;
+		// Devices configured at once, the CAN bus saturates well before this matters
+		public static final int threads = 4;
+		// Give up waiting on a device after this long so a missing one cannot hang boot
+		public static final long awaitSeconds = 10;
+	}
+
+	/// Status frame periods in milliseconds, see {@link frc.robot.subsystems.StatusFramePolicy}
+	public static final class StatusFrameConstants {
+		// Frames read by odometry or closed loops
+		public static final int fast = 10;
+		// Frames read once per loop
+		public static final int normal = 20;
+		// Frames only read for telemetry
+		public static final int slow = 100;
+		// Frames nobody reads, 255ms is the longest period the devices accept
+		public static final int off = 255;
+
+		// How long to wait for each device to acknowledge a period at startup
+		public static final int configTimeoutMs = 50;
+	}
+
+	/// See {@link frc.robot.subsystems.FlightRecorder}
+	public static final class FlightRecorderConstants {
+		public static final boolean enabled = true;
+		// Loops per block, 5 seconds at 50Hz, so a crash loses at most this much
+		public static final int rowsPerBlock = 250;
+		// Blocks allocated up front, the writer can fall this many blocks behind before rows are dropped
+		public static final int buffers = 4;
+		// Vision measurements recorded per loop for replay, both cameras rarely deliver more than two frames each
+		public static final int visionSlots = 4;
+
+		// The roboRIO mounts a USB stick here, which is preferred over its own flash
+		public static final String usbDirectory = "/u";
+		public static final String robotDirectory = "/home/lvuser/flight";
+		public static final String simulationDirectory = "flight";
+
+		// Flash is finite: a recording is split once it reaches maxFileBytes, and the oldest are deleted to keep every recording in a directory within budget
+		public static final long maxFileBytes = 25L << 20;
+		public static final long robotBudgetBytes = 150L << 20;
+		public static final long usbBudgetBytes = 2L << 30;
+
+		// Recording stops while the Driver Station is not attached, and once the robot has been disabled for this long
+		public static final double disabledSeconds = 30;
+	}
+
+	/// Stand-ins for the mechanisms in simulation, see the `Sim` classes of each subsystem's IO
+	public static final class SimulationConstants {
+		// Full output moves the arm this many degrees per second
+		public static final double armDegreesPerSecond = 90;
+		// Full output moves the elevator this many ticks per second
+		public static final double elevatorTicksPerSecond = 60000;
+		// How far either side of the home offset the home limit switch reads closed
+		public static final double elevatorHomeBandTicks = 200;
+	}
+
 	public static final class LimelightFXConstants {
         public static final boolean disable = false;
 
@@ -188,11 +251,15 @@ public final class Constants {
 		public static final double intakeCubePower = -0.3;
 		public static final double shootConePower = 0.85;
 		public static final double shootCubePower = 0.5;
+
+		public static final MotorConfig motorConfig = new MotorConfig();
 	}
 
 	public static final class ElevatorConstants {
 		public static final Gains elevatorGains = new Gains(0.015, 0.0, 0.0, 0.0, 100, 0.50);
 
+		public static final MotorConfig motorConfig = new MotorConfig();
+
 		public static final int averageLockIntervalTicks = -1925; // distance in encoder ticks between locking piston clicks
 		// public static final int exitHeight = -10000; // min height to allow arm movement
 		// public static final int driveHeight = -9780;
@@ -215,6 +282,9 @@ public final class Constants {
 	public static final class ArmConstants {
 		public static final Gains armGains = new Gains(0.01, 0.02, 0.0015, 0.0, 100, 0.50);
 
+		// The arm angle comes from the CANCoder, through the Talon's remote sensor
+		public static final MotorConfig motorConfig = new MotorConfig().withFeedbackDevice(FeedbackDevice.RemoteSensor0);
+
 		public static final double lowPositionCone = -67.5;
 		public static final double lowPositionCube = -75;
 		public static final double midPosition = -22.2 - 4;
@@ -237,6 +307,11 @@ public final class Constants {
 
 		public static final double toHighDistance = .2;
 
+		// Slower ramp than the mechanisms to keep the robot from tipping, gains are for velocity control in auto
+		public static final MotorConfig motorConfig = new MotorConfig()
+			.withOpenLoopRamp(0.4)
+			.withGains(AutoConstants.GainsAuto);
+
 		public static final int encoderCPR = 2048;
 		public static final double wheelDiameterMeters = 0.1016;
 
@@ -245,6 +320,18 @@ public final class Constants {
 
 		public static final double unitsPerRevolution = 2048;
 
+		// Pick brake or coast every loop from Drivetrain.automaticNeutralMode() instead of per robot mode
+		public static final boolean automaticNeutralMode = false;
+
+		// Integrate odometry on a separate thread faster than the main loop instead of once per periodic()
+		public static final boolean odometryThreadEnabled = false;
+		public static final double odometryFrequencyHz = 200;
+
+		// How far back poses are kept for latency compensation, older vision captures are compared against the oldest pose
+		public static final double poseHistorySeconds = 5;
+		// One pose per odometry update, which is every main loop at 50Hz unless the odometry thread runs
+		public static final int poseHistoryCapacity = (int)Math.ceil(DrivetrainConstants.poseHistorySeconds * (DrivetrainConstants.odometryThreadEnabled ? DrivetrainConstants.odometryFrequencyHz : 50));
+
 		public static final double highGearRatio = 5.4;
 		public static final double lowGearRatio = 8.82;
 
@@ -296,6 +383,49 @@ public final class Constants {
 		public static final double reductFactorRotation = 0.75;
 	}
 
+	public static final class VisionConstants {
+		public static final class Camera {
+			public final String name;
+
+			// Where the camera sits relative to the center of the robot on the floor, x forward, y left, z up.
+			// null keeps whatever pose is configured in the Limelight web UI.
+			public final Transform3d robotToCamera;
+
+			Camera(final String name, final Transform3d robotToCamera) {
+				this.name = name;
+				this.robotToCamera = robotToCamera;
+			}
+		}
+
+		public static final Camera topCamera = new Camera("limelight-top", null);
+		public static final Camera intakeCamera = new Camera("limelight-intake", null);
+
+		// Every camera whose AprilTag poses are fused into the pose estimator, Drivetrain makes a Limelight for each
+		public static final Camera[] cameras = { VisionConstants.topCamera, VisionConstants.intakeCamera };
+
+		// Standard deviations for a single tag seen at 1 meter, scaled up with distance and down with tag count
+		public static final double baseXYStdDev = 0.3; // meters
+		public static final double baseThetaStdDev = 0.9; // radians
+
+		// How quickly trust falls off with distance, per meter squared
+		public static final double distanceStdDevScale = 0.25;
+
+		// Frames whose average tag distance is further than this are dropped entirely
+		public static final double maxTagDistanceMeters = 6.0;
+
+		// A capture reported further in the past than this is treated as bogus
+		public static final double maxLatencySeconds = 1.0;
+
+		// Measurements further than this from where odometry thinks we are are rejected as outliers
+		public static final double maxTranslationErrorMeters = 1.0;
+		public static final double maxRotationErrorRadians = Math.toRadians(30);
+
+		// After this many outliers in a row that agree with each other odometry is assumed to have drifted, and vision is trusted again
+		public static final int maxConsecutiveRejections = 10;
+		// Outliers fused before they have to build up agreement again, so a consistently wrong camera only pulls the estimate so far
+		public static final int maxTrustedOutliers = 10;
+	}
+
 	public static final class AutoConstants {
 		// public static final Gains GainsAuto = new Gains(0.08, 0.001, 0, 0, 0, 1.00);
 		public static final Gains GainsAuto = new Gains(0.06, 0.001, 0.04, 0, 0, 1.00);
@@ -21,8 +21,8 @@ public final class Main {
 	 * If you change your main robot class, change the parameter type.
 	 */
 	public static void main(String... args) throws Exception {
-		Log.start();
 		Log.lineLimit = 50;
+		Log.start();
 		Log.writeln("Robot starting...");
 
 		// publish telemetry to smartdashboard by default
@@ -0,0 +1,83 @@
+package frc.robot;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A bounded, lock-free, single-producer/single-consumer queue.
+ *
+ * Exactly one thread may call `offer` and exactly one (possibly different) thread
+ * may call `poll`. Neither side ever blocks or allocates.
+ */
+public final class RingBuffer<T> {
+	private final Object[] slots;
+	private final int mask;
+
+	// Next sequence to read, only written by the consumer
+	private final AtomicLong head = new AtomicLong();
+	// Next sequence to write, only written by the producer
+	private final AtomicLong tail = new AtomicLong();
+
+	private final AtomicLong dropped = new AtomicLong();
+
+	/**
+	 * @param capacity the number of slots, rounded up to a power of two
+	 */
+	public RingBuffer(int capacity) {
+		int size = 1;
+		while(size < capacity) size <<= 1;
+
+		this.slots = new Object[size];
+		this.mask = size - 1;
+	}
+
+	/**
+	 * Adds a value to the queue. Producer thread only.
+	 *
+	 * @return false, and counts a drop, if the queue was full
+	 */
+	public boolean offer(T value) {
+		final long tail = this.tail.get();
+
+		if(tail - this.head.get() >= this.slots.length) {
+			this.dropped.incrementAndGet();
+			return false;
+		}
+
+		this.slots[(int)(tail & this.mask)] = value;
+		// Publishes the slot write above to the consumer
+		this.tail.lazySet(tail + 1);
+		return true;
+	}
+
+	/**
+	 * Takes the oldest value off the queue. Consumer thread only.
+	 *
+	 * @return the value, or null if the queue is empty
+	 */
+	@SuppressWarnings("unchecked")
+	public T poll() {
+		final long head = this.head.get();
+
+		if(head >= this.tail.get()) return null;
+
+		final int index = (int)(head & this.mask);
+		final T value = (T)this.slots[index];
+		this.slots[index] = null;
+		// Hands the slot back to the producer
+		this.head.lazySet(head + 1);
+		return value;
+	}
+
+	public int size() {
+		return (int)(this.tail.get() - this.head.get());
+	}
+
+	public int capacity() {
+		return this.slots.length;
+	}
+
+	/// The number of values rejected because the queue was full
+	public long getDropped() {
+		return this.dropped.get();
+	}
+}
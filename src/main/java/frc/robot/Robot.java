@@ -1,11 +1,20 @@
 package frc.robot;
 
+import edu.wpi.first.networktables.NetworkTableInstance;
 import edu.wpi.first.wpilibj.Compressor;
 import edu.wpi.first.wpilibj.PneumaticsModuleType;
+import edu.wpi.first.wpilibj.RobotBase;
 import edu.wpi.first.wpilibj.TimedRobot;
+import edu.wpi.first.wpilibj.simulation.DriverStationSim;
 import edu.wpi.first.wpilibj2.command.Command;
 import edu.wpi.first.wpilibj2.command.CommandScheduler;
+import frc.robot.sim.MonteCarlo;
+import frc.robot.sim.SimClock;
 import frc.robot.subsystems.LimelightFX.Behaviors;
+import frc.robot.subsystems.Log;
+import frc.robot.subsystems.LoopProfiler;
+import frc.robot.subsystems.StatusFramePolicy;
+import frc.robot.subsystems.Telemetry;
 
 /**
  * The VM is configured to automatically run this class, and to call the
@@ -25,6 +34,8 @@ public class Robot extends TimedRobot {
 
 	private final Behaviors.CountdownBehavior autonomousCountdown = new Behaviors.CountdownBehavior();
 
+	private final LoopProfiler.Section schedulerProfile = LoopProfiler.section("Scheduler");
+
 	@Override
 	public void robotInit() {
 		Robot.instance = this;
@@ -32,20 +43,90 @@ public class Robot extends TimedRobot {
 		this.compressor.enableDigital();
 
 		CommandScheduler.getInstance().setPeriod(this.getPeriod() * 2); // dont let watchdog complain unless we hit twice our loop period
+
+		LoopProfiler.start();
+		Telemetry.track("Log Dropped", Log::dropped, Telemetry.Rate.Slow);
+
+		if(RobotBase.isSimulation()) this.configureSimulation();
+	}
+
+	/**
+	 * `SIM_AUTONOMOUS=15` runs that many seconds of autonomous as fast as possible and exits,
+	 * with `SIM_ROUTINE` naming the routine if it should not be the default. Replays always run
+	 * as fast as possible. Otherwise the simulation keeps to the wall clock.
+	 *
+	 * A run started by {@link MonteCarlo} also reports how its trial turned out before exiting.
+	 *
+	 * Headless runs should leave the simulation GUI off, its Driver Station would take over the mode.
+	 */
+	private void configureSimulation() {
+		final String autonomous = System.getenv("SIM_AUTONOMOUS");
+		if(autonomous != null && !autonomous.isEmpty()) {
+			final String routine = System.getenv("SIM_ROUTINE");
+			if(routine != null && !routine.isEmpty()) this.robotContainer.selectAutonomous(routine);
+
+			final MonteCarlo.Trial trial = MonteCarlo.Trial.current();
+
+			// Trials run side by side and would all fight over the NetworkTables ports, nothing connects to them anyway
+			if(trial != null) {
+				final NetworkTableInstance networkTables = NetworkTableInstance.getDefault();
+				networkTables.stopServer();
+				networkTables.startLocal();
+			}
+
+			DriverStationSim.setDsAttached(true);
+			DriverStationSim.setAutonomous(true);
+			DriverStationSim.setEnabled(true);
+			DriverStationSim.notifyNewData();
+
+			if(trial != null) trial.track(this);
+
+			SimClock.startUnthrottled(this.getPeriod(), Double.parseDouble(autonomous), () -> {
+				if(trial != null) trial.report();
+				Log.flush();
+				System.exit(0);
+			});
+		} else if(this.robotContainer.io.mode == RobotIO.Mode.Replay) {
+			// Ends itself at the end of the recording
+			SimClock.startUnthrottled(this.getPeriod(), Double.POSITIVE_INFINITY, null);
+		}
 	}
 
 	@Override
 	public void robotPeriodic() {
+		if(RobotBase.isSimulation()) SimClock.update();
+
+		// Everything the scheduler runs, subsystems and commands are also timed individually inside it
+		this.schedulerProfile.start();
 		CommandScheduler.getInstance().run();
+		this.schedulerProfile.stop();
+
+		this.robotContainer.configurator.checkForResets();
+		this.robotContainer.statusFrames.update();
+
+		// Last, so the row holds this loop's outputs as well as its inputs
+		this.robotContainer.recorder.sample();
+
+		// A replay moves on to the next recorded loop only once this one is done
+		this.robotContainer.io.advance();
+
+		LoopProfiler.update();
 	}
 
     @Override
     public void disabledInit() {
+        this.robotContainer.statusFrames.setMode(StatusFramePolicy.Mode.Disabled);
+
+        // Get the end of the match onto flash rather than waiting for the block to fill
+        this.robotContainer.recorder.flush();
+
         this.robotContainer.displayImage("viking");
     }
 
 	@Override
 	public void autonomousInit() {
+		this.robotContainer.statusFrames.setMode(StatusFramePolicy.Mode.Autonomous);
+
 		this.robotContainer.drivetrain.setBrakeMode();
 
 		this.autonomousCommand = this.robotContainer.getAutonomousCommand();
@@ -64,6 +145,8 @@ public class Robot extends TimedRobot {
 
 	@Override
 	public void teleopInit() {
+		this.robotContainer.statusFrames.setMode(StatusFramePolicy.Mode.Teleop);
+
 		this.robotContainer.drivetrain.setCoastMode();
 
         this.robotContainer.displayImage("heart");
@@ -71,6 +154,8 @@ public class Robot extends TimedRobot {
 
 	@Override
 	public void testInit() {
+		this.robotContainer.statusFrames.setMode(StatusFramePolicy.Mode.Test);
+
 		CommandScheduler.getInstance().cancelAll();
 	}
 }
@@ -17,6 +17,7 @@ import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
 import edu.wpi.first.wpilibj.util.Color8Bit;
 
 import edu.wpi.first.wpilibj.DriverStation;
+import edu.wpi.first.wpilibj.RobotController;
 import edu.wpi.first.wpilibj.SerialPort;
 import edu.wpi.first.wpilibj2.command.*;
 
@@ -27,15 +28,22 @@ import edu.wpi.first.wpilibj2.command.*;
  * the robot (including subsystems, commands, and button mappings) should be declared here.
  */
 public class RobotContainer {
-	public final Transmission transmission = new Transmission();
-	public final Drivetrain drivetrain = new Drivetrain();
+	// Real devices on the robot, physics models or a flight recording everywhere else
+	public final RobotIO io = RobotIO.create();
 
-	public final Elevator elevator = new Elevator();
-	public final Arm arm = new Arm();
-	public final Intake intake = new Intake();
+	public final Transmission transmission = new Transmission(this.io.transmission);
+	public final Drivetrain drivetrain = new Drivetrain(this.io.drivetrain);
+
+	public final Elevator elevator = new Elevator(this.io.elevator);
+	public final Arm arm = new Arm(this.io.arm);
+	public final Intake intake = new Intake(this.io.intake);
 
 	public final LimelightFX fx = new LimelightFX(SerialPort.Port.kUSB);
 
+	public final DeviceConfigurator configurator = new DeviceConfigurator();
+	public final StatusFramePolicy statusFrames = new StatusFramePolicy();
+	public final FlightRecorder recorder = new FlightRecorder();
+
 	public final Mechanism2d mech;
 	public final MechanismRoot2d mechRoot;
 	public final MechanismLigament2d mechElevator;
@@ -52,8 +60,13 @@ public class RobotContainer {
 	public RobotContainer() {
 		SmartDashboard.putData("Autonomous Routine", this.autonomousChooser);
 
+		this.transmission.onShift(this.drivetrain::setGearState);
+
 		this.configureDriverControls();
 		this.configureOperatorControls();
+		this.configureDevices();
+		this.configureStatusFrames();
+		this.configureRecorder();
 
 		this.mech = new Mechanism2d(10, 10, new Color8Bit(0, 0, 0));
 		this.mechRoot = this.mech.getRoot("Root", 0, 0);
@@ -169,10 +182,61 @@ public class RobotContainer {
 		}));
 	}
 
+	private void configureDevices() {
+		this.drivetrain.configureMotors(this.configurator);
+		this.elevator.configureMotors(this.configurator);
+		this.arm.configureMotors(this.configurator);
+		this.intake.configureMotors(this.configurator);
+
+		// A reset also restores the factory status frame periods, which the policy has to send again
+		this.configurator.onReset(this.statusFrames::invalidate);
+
+		// Every device is configured at once, the robot cannot run until they all are
+		this.configurator.start();
+		this.configurator.await();
+	}
+
+	private void configureStatusFrames() {
+		this.drivetrain.configureStatusFrames(this.statusFrames);
+		this.elevator.configureStatusFrames(this.statusFrames);
+		this.arm.configureStatusFrames(this.statusFrames);
+		this.intake.configureStatusFrames(this.statusFrames);
+
+		// Must come after configureDevices(), a factory default also resets these periods
+		this.statusFrames.configure(StatusFramePolicy.Mode.Disabled);
+	}
+
+	private void configureRecorder() {
+		this.drivetrain.configureRecorder(this.recorder);
+		this.elevator.configureRecorder(this.recorder);
+		this.arm.configureRecorder(this.recorder);
+		this.intake.configureRecorder(this.recorder);
+
+		this.recorder
+			.column("Driver/Move", this.driverOI.getMoveSupplier())
+			.column("Driver/Rotate", this.driverOI.getRotateSupplier())
+			.column("Driver/POV", this.driverController::getPOV)
+			.column("Operator/Elevator", this.operatorOI.getElevatorSupplier())
+			.column("Operator/Arm", this.operatorOI.getArmSupplier())
+			.column("Operator/POV", this.operatorController::getPOV)
+			.column("Driver Station/Battery", RobotController::getBatteryVoltage)
+			.flag("Driver Station/Enabled", DriverStation::isEnabled)
+			.flag("Driver Station/Autonomous", DriverStation::isAutonomous);
+
+		this.recorder.start();
+	}
+
     public void displayImage(final String image) {
         this.fx.image(LimelightFXConstants.image(image));
     }
 
+	/// Selects the autonomous routine by its name in the chooser, as the dashboard would
+	public void selectAutonomous(String name) {
+		SmartDashboard.putString("Autonomous Routine/selected", name);
+		// The chooser only picks it up when the dashboard values are next updated, which may be after autonomousInit
+		SmartDashboard.updateValues();
+	}
+
 	public Command getAutonomousCommand() {
 		return this.autonomousChooser.getSelected();
 	}
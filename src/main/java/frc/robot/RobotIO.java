@@ -0,0 +1,100 @@
+package frc.robot;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import edu.wpi.first.wpilibj.RobotBase;
+import frc.robot.sim.MonteCarlo;
+import frc.robot.subsystems.ArmIO;
+import frc.robot.subsystems.DrivetrainIO;
+import frc.robot.subsystems.ElevatorIO;
+import frc.robot.subsystems.FlightLog;
+import frc.robot.subsystems.IntakeIO;
+import frc.robot.subsystems.Log;
+import frc.robot.subsystems.TransmissionIO;
+
+/**
+ * The hardware behind every subsystem, picked once at startup and handed to the subsystems by
+ * {@link RobotContainer}.
+ *
+ * On the robot this is the real devices. In simulation it is physics models that only move when
+ * the subsystems step them, so nothing depends on CTRE's device simulation or a wall clock. When
+ * the `REPLAY` environment variable names a flight recording, the sensors play back that
+ * recording one row per loop instead, and the robot code runs against what the robot saw.
+ */
+public final class RobotIO {
+	public enum Mode {
+		Real,
+		Sim,
+		Replay;
+	}
+
+	public final Mode mode;
+
+	public final DrivetrainIO drivetrain;
+	public final TransmissionIO transmission;
+	public final ElevatorIO elevator;
+	public final ArmIO arm;
+	public final IntakeIO intake;
+
+	// Shared by every replay implementation, null unless replaying
+	private final FlightLog.Cursor cursor;
+
+	private RobotIO(Mode mode, DrivetrainIO drivetrain, TransmissionIO transmission, ElevatorIO elevator, ArmIO arm, IntakeIO intake, FlightLog.Cursor cursor) {
+		this.mode = mode;
+		this.drivetrain = drivetrain;
+		this.transmission = transmission;
+		this.elevator = elevator;
+		this.arm = arm;
+		this.intake = intake;
+		this.cursor = cursor;
+	}
+
+	public static RobotIO create() {
+		if(RobotBase.isReal()) return RobotIO.real();
+
+		final String recording = System.getenv("REPLAY");
+		if(recording != null && !recording.isEmpty()) return RobotIO.replay(Paths.get(recording));
+
+		return RobotIO.sim();
+	}
+
+	public static RobotIO real() {
+		return new RobotIO(Mode.Real, new DrivetrainIO.Real(), new TransmissionIO.Real(), new ElevatorIO.Real(), new ArmIO.Real(), new IntakeIO.Real(), null);
+	}
+
+	public static RobotIO sim() {
+		// A Monte Carlo trial brings its own drivebase
+		final MonteCarlo.Trial trial = MonteCarlo.Trial.current();
+		final DrivetrainIO.Sim drivetrain = trial != null ? new DrivetrainIO.Sim(trial.model()) : new DrivetrainIO.Sim();
+
+		return new RobotIO(Mode.Sim, drivetrain, new TransmissionIO.Sim(drivetrain.getModel()::setGear), new ElevatorIO.Sim(), new ArmIO.Sim(), new IntakeIO.None(), null);
+	}
+
+	public static RobotIO replay(Path recording) {
+		final FlightLog log;
+		try {
+			log = FlightLog.read(recording);
+		} catch(IOException e) {
+			throw new UncheckedIOException(e);
+		}
+
+		if(log.rows() == 0) throw new IllegalArgumentException(recording + " has no rows");
+
+		final FlightLog.Cursor cursor = log.cursor();
+		Log.writeln("[Replay] " + recording + ", " + log.rows() + " loops");
+
+		return new RobotIO(Mode.Replay, new DrivetrainIO.Replay(cursor), new TransmissionIO.Sim(gear -> {}), new ElevatorIO.Replay(cursor), new ArmIO.Replay(cursor), new IntakeIO.None(), cursor);
+	}
+
+	/// Moves a replay on to the next recorded loop, and ends the program after the last one. Call once at the end of every loop.
+	public void advance() {
+		if(this.cursor == null || this.cursor.advance()) return;
+
+		Log.writeln("[Replay] Reached the end of the recording");
+		Log.flush();
+		System.exit(0);
+	}
+}
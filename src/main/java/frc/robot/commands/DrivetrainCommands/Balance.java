@@ -2,12 +2,14 @@ package frc.robot.commands.DrivetrainCommands;
 
 import edu.wpi.first.math.controller.PIDController;
 import edu.wpi.first.wpilibj.DriverStation;
+import edu.wpi.first.wpilibj.Timer;
 import edu.wpi.first.wpilibj2.command.CommandBase;
 import frc.robot.Constants.DrivetrainConstants;
 import frc.robot.subsystems.Drivetrain;
 
 public class Balance extends CommandBase {
-	private double time = System.currentTimeMillis();
+	// FPGA time the command started at, in ms, so it follows the simulation clock
+	private double time = Timer.getFPGATimestamp() * 1000;
 
 	private final Drivetrain drivetrain;
 
@@ -69,15 +71,16 @@ public class Balance extends CommandBase {
 
 	@Override
 	public void initialize() {
-		this.time = System.currentTimeMillis();
+		this.time = Timer.getFPGATimestamp() * 1000;
 	}
 
 	@Override
 	public void execute() {
-		final double balanceVolts = this.balance.calculate(this.drivetrain.readPitch());
+		final double pitch = this.drivetrain.readPitch();
+		final double balanceVolts = this.balance.calculate(pitch);
 		final double alignVolts = this.align.calculate(this.drivetrain.readRoll());
 
-		if(this.drivetrain.readPitch() > 0) this.drivetrain.tankDriveVolts(-balanceVolts + alignVolts, -balanceVolts - alignVolts);
+		if(pitch > 0) this.drivetrain.tankDriveVolts(-balanceVolts + alignVolts, -balanceVolts - alignVolts);
 		else this.drivetrain.tankDriveVolts(-balanceVolts - alignVolts, -balanceVolts + alignVolts);
 
         this.drivetrain.setBrakeMode();
@@ -90,6 +93,6 @@ public class Balance extends CommandBase {
 
 	@Override
 	public boolean isFinished() {
-		return System.currentTimeMillis() > this.time + this.timeout || (this.stopAtSetpoint && this.balance.atSetpoint() && this.align.atSetpoint());
+		return Timer.getFPGATimestamp() * 1000 > this.time + this.timeout || (this.stopAtSetpoint && this.balance.atSetpoint() && this.align.atSetpoint());
 	}
 }
@@ -3,6 +3,7 @@ package frc.robot.commands.DrivetrainCommands;
 import frc.robot.subsystems.Drivetrain;
 import edu.wpi.first.wpilibj2.command.CommandBase;
 
+import com.ctre.phoenix.motorcontrol.can.TalonFX;
 import com.ctre.phoenix.music.Orchestra;
 
 public class OrchestraPlayer extends CommandBase {
@@ -13,10 +14,8 @@ public class OrchestraPlayer extends CommandBase {
 		this.drivetrain = drivetrain;
 
 		this.player = new Orchestra();
-		this.player.addInstrument(drivetrain.rightLeader);
-		this.player.addInstrument(drivetrain.leftLeader);
-		this.player.addInstrument(drivetrain.rightFollower);
-		this.player.addInstrument(drivetrain.leftFollower);
+		// Silent without hardware, there are no Talons to play through
+		for(final TalonFX instrument : drivetrain.io.instruments()) this.player.addInstrument(instrument);
 		this.player.loadMusic(filename);
 
 		this.addRequirements(drivetrain);
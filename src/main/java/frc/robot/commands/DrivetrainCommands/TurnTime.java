@@ -1,6 +1,7 @@
 package frc.robot.commands.DrivetrainCommands;
 
 import frc.robot.subsystems.Drivetrain;
+import edu.wpi.first.wpilibj.Timer;
 import edu.wpi.first.wpilibj2.command.CommandBase;
 
 public class TurnTime extends CommandBase {
@@ -8,18 +9,18 @@ public class TurnTime extends CommandBase {
 	private final double rotationalSpeed;
 	private final Drivetrain drivetrain;
 
-	private long startTime;
+	private double startTime;
 
 	public TurnTime(double speed, double time, Drivetrain drive) {
 		this.rotationalSpeed = speed;
-		this.duration = time * 1000;
+		this.duration = time;
 		this.drivetrain = drive;
 		this.addRequirements(drive);
 	}
 
 	@Override
 	public void initialize() {
-		this.startTime = System.currentTimeMillis();
+		this.startTime = Timer.getFPGATimestamp();
 		this.drivetrain.halt();
 	}
 
@@ -35,6 +36,6 @@ public class TurnTime extends CommandBase {
 
 	@Override
 	public boolean isFinished() {
-		return (System.currentTimeMillis() - this.startTime) >= this.duration;
+		return (Timer.getFPGATimestamp() - this.startTime) >= this.duration;
 	}
 }
@@ -15,8 +15,7 @@ public class InitializeElevator extends CommandBase {
 
 	@Override
 	public void initialize() {
-		this.elevator.motor.overrideLimitSwitchesEnable(true);
-		this.elevator.motor.overrideSoftLimitsEnable(false);
+		this.elevator.enableLimits(true, false);
 	}
 
 	@Override
@@ -26,8 +25,7 @@ public class InitializeElevator extends CommandBase {
 
 	@Override
 	public void end(boolean interrupted) {
-		this.elevator.motor.overrideLimitSwitchesEnable(true);
-		this.elevator.motor.overrideSoftLimitsEnable(true);
+		this.elevator.enableLimits(true, true);
 	}
 
 	@Override
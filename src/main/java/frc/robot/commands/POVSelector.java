@@ -125,7 +125,7 @@ public class POVSelector extends CommandBase {
 		this.state.clear();
 		this.state.add(this.root);
 
-		Log.writeln("[POV Selector Started]");
+		Log.event("POV Selector Started");
 
 		this.telem.publish();
 	}
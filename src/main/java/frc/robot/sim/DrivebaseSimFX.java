@@ -1,119 +1,150 @@
 package frc.robot.sim;
 
-import com.ctre.phoenix.motorcontrol.TalonFXSimCollection;
-import com.ctre.phoenix.motorcontrol.can.WPI_TalonFX;
-import com.ctre.phoenix.sensors.BasePigeonSimCollection;
-import com.ctre.phoenix.sensors.WPI_Pigeon2;
-
-import edu.wpi.first.wpilibj.RobotController;
 import edu.wpi.first.wpilibj.simulation.DifferentialDrivetrainSim;
+import edu.wpi.first.math.VecBuilder;
+import edu.wpi.first.math.geometry.Pose2d;
 import edu.wpi.first.math.system.plant.DCMotor;
 
 import frc.robot.Constants.DrivetrainConstants;
-
+import frc.robot.subsystems.Transmission.GearState;
+
+/**
+ * A Falcon 500 drivebase model, in terms of the sides of the robot.
+ *
+ * Nothing here touches a device or a clock, the model only moves when {@link #run(double)} is
+ * called, so it can be stepped as fast as the host allows.
+ */
 public class DrivebaseSimFX {
-	private TalonFXSimCollection _leftMasterSim, _rightMasterSim;
-	private BasePigeonSimCollection _pidgeySim;
-
-	//These numbers are an example AndyMark Drivetrain with some additional weight. This is a fairly light robot.
-	//Note you can utilize results from robot characterization instead of theoretical numbers.
-	//https://docs.wpilib.org/en/stable/docs/software/wpilib-tools/robot-characterization/introduction.html#introduction-to-robot-characterization
-	// private final int kCountsPerRev = 2048; //Encoder counts per revolution of the motor shaft.
-	// private final double kSensorGearRatio = 1; //Gear ratio is the ratio between the *encoder* and the wheels. On the AndyMark drivetrain, encoders mount 1:1 with the gearbox shaft.
-	// private final double kGearRatio = 10.71; //Switch kSensorGearRatio to this gear ratio if encoder is on the motor instead of on the gearbox.
-	// private final double kWheelRadiusInches = 3;
+	public static final double nominalVoltage = 12;
+
+	public static final double nominalMassKg = 26.5; //Mass of the robot is 26.5 kg.
+	public static final double nominalMoiKgMetersSquared = 2.1; //MOI of 2.1 kg m^2 (from CAD model).
+
 	private final int k100msPerSecond = 10;
 
 	//Simulation model of the drivetrain
-	private DifferentialDrivetrainSim _driveSim = new DifferentialDrivetrainSim(
-		DCMotor.getFalcon500(2), //2 Falcon 500s on each side of the drivetrain.
-		DrivetrainConstants.lowGearRatio, // Gearing reduction.
-		2.1, //MOI of 2.1 kg m^2 (from CAD model).
-		26.5, //Mass of the robot is 26.5 kg.
-		DrivetrainConstants.wheelDiameterMeters/2, //Robot uses 3" radius (6" diameter) wheels.
-		DrivetrainConstants.trackWidthMeters, //Distance between wheels is _ meters.
-
-		// The standard deviations for measurement noise:
-		// x and y: 0.001 m
-		// heading: 0.001 rad
-		// l and r velocity: 0.1 m/s
-		// l and r position: 0.005 m
-		null //VecBuilder.fill(0.001, 0.001, 0.001, 0.1, 0.1, 0.005, 0.005) //Uncomment this line to add measurement noise.
-	);
+	private DifferentialDrivetrainSim _driveSim;
+
+	private double gearRatio = DrivetrainConstants.lowGearRatio;
+
+	// Encoder ticks accumulated from wheel travel, so a shift only rescales travel after it like on the robot
+	private double leftPositionTicks;
+	private double rightPositionTicks;
+	private double lastLeftMeters;
+	private double lastRightMeters;
+
+	public DrivebaseSimFX() {
+		this(nominalMassKg, nominalMoiKgMetersSquared, 0);
+	}
+
+	/**
+	 * @param massKg mass of the robot
+	 * @param moiKgMetersSquared moment of inertia about the center of the robot
+	 * @param noiseScale multiplier on the measurement noise, 0 for none
+	 */
+	public DrivebaseSimFX(double massKg, double moiKgMetersSquared, double noiseScale) {
+		_driveSim = new DifferentialDrivetrainSim(
+			DCMotor.getFalcon500(2), //2 Falcon 500s on each side of the drivetrain.
+			DrivetrainConstants.lowGearRatio, // Gearing reduction.
+			moiKgMetersSquared,
+			massKg,
+			DrivetrainConstants.wheelDiameterMeters/2, //Robot uses 3" radius (6" diameter) wheels.
+			DrivetrainConstants.trackWidthMeters, //Distance between wheels is _ meters.
+
+			// The standard deviations for measurement noise:
+			// x and y: 0.001 m
+			// heading: 0.001 rad
+			// l and r velocity: 0.1 m/s
+			// l and r position: 0.005 m
+			noiseScale == 0 ? null : VecBuilder.fill(0.001, 0.001, 0.001, 0.1, 0.1, 0.005, 0.005).times(noiseScale)
+		);
+	}
+
+	/**
+	 * Sets the voltage applied to each side, positive driving forward.
+	 */
+	public void setInputs(double leftVolts, double rightVolts) {
+		_driveSim.setInputs(leftVolts, rightVolts);
+	}
+
+	/**
+	 * Switches the model and the encoders over to the gearing of `gear`.
+	 */
+	public void setGear(GearState gear) {
+		this.gearRatio = gear == GearState.HIGH ? DrivetrainConstants.highGearRatio : DrivetrainConstants.lowGearRatio;
+		_driveSim.setCurrentGearing(this.gearRatio);
+	}
 
 	/**
-	 * Creates a new drivebase simualtor using Falcon 500 motors.
-	 *
-	 * @param leftMaster the left master Falcon
-	 * @param rightMaster the right master Falcon
-	 * @param pidgey the Pigeon IMU
+	 * Advances the drivebase model by `dtSeconds`.
 	 */
-	public DrivebaseSimFX(WPI_TalonFX leftMaster, WPI_TalonFX rightMaster, WPI_Pigeon2 pidgey) {
-		_leftMasterSim = leftMaster.getSimCollection();
-		_rightMasterSim = rightMaster.getSimCollection();
-		_pidgeySim = pidgey.getSimCollection();
+	public void run(double dtSeconds) {
+		_driveSim.update(dtSeconds);
+
+		final double left = _driveSim.getLeftPositionMeters();
+		final double right = _driveSim.getRightPositionMeters();
+		this.leftPositionTicks += distanceToNativeUnits(left - this.lastLeftMeters);
+		this.rightPositionTicks += distanceToNativeUnits(right - this.lastRightMeters);
+		this.lastLeftMeters = left;
+		this.lastRightMeters = right;
+	}
+
+	public double getLeftPositionTicks() {
+		return this.leftPositionTicks;
+	}
+
+	public double getRightPositionTicks() {
+		return this.rightPositionTicks;
+	}
+
+	public double getLeftVelocityTicks() {
+		return velocityToNativeUnits(_driveSim.getLeftVelocityMetersPerSecond());
+	}
+
+	public double getRightVelocityTicks() {
+		return velocityToNativeUnits(_driveSim.getRightVelocityMetersPerSecond());
+	}
+
+	public double getHeadingDegrees() {
+		return _driveSim.getHeading().getDegrees();
 	}
 
 	/**
-	 * Runs the drivebase simulator.
+	 * Picks the model up and sets it down at `pose`. The encoder ticks carry on from where they were.
 	 */
-	public void run() {
-		// Set the inputs to the system. Note that we need to use
-		// the output voltage, NOT the percent output.
-		_driveSim.setInputs(_leftMasterSim.getMotorOutputLeadVoltage(),
-							-_rightMasterSim.getMotorOutputLeadVoltage()); //Right side is inverted, so forward is negative voltage
-
-		// Advance the model by 20 ms. Note that if you are running this
-		// subsystem in a separate thread or have changed the nominal timestep
-		// of TimedRobot, this value needs to match it.
-		// Reduced from 0.02 to 0.008 to make sim smoother while running trajectories
-		_driveSim.update(0.02);
-
-		// Update all of our sensors.
-		_leftMasterSim.setIntegratedSensorRawPosition(
-						distanceToNativeUnits(
-						_driveSim.getLeftPositionMeters()));
-		_leftMasterSim.setIntegratedSensorVelocity(
-						velocityToNativeUnits(
-						_driveSim.getLeftVelocityMetersPerSecond()));
-		_rightMasterSim.setIntegratedSensorRawPosition(
-						distanceToNativeUnits(
-						-_driveSim.getRightPositionMeters()));
-		_rightMasterSim.setIntegratedSensorVelocity(
-						velocityToNativeUnits(
-						-_driveSim.getRightVelocityMetersPerSecond()));
-
-		_pidgeySim.setRawHeading(-_driveSim.getHeading().getDegrees()); // Had to negated gyro heading
-
-		//Update other inputs to Talons
-		_leftMasterSim.setBusVoltage(RobotController.getBatteryVoltage());
-		_rightMasterSim.setBusVoltage(RobotController.getBatteryVoltage());
+	public void setPose(Pose2d pose) {
+		_driveSim.setPose(pose);
+		this.lastLeftMeters = 0;
+		this.lastRightMeters = 0;
+
+		// The sim only refreshes what it reports on update(), a step of nothing reports the new pose straight away
+		_driveSim.update(0);
+	}
+
+	public Pose2d getPose() {
+		return _driveSim.getPose();
+	}
 
+	public double getSpeedMetersPerSecond() {
+		return (_driveSim.getLeftVelocityMetersPerSecond() + _driveSim.getRightVelocityMetersPerSecond()) / 2;
+	}
+
+	public DifferentialDrivetrainSim getDriveSim() {
+		return _driveSim;
 	}
 
 	// Helper methods to convert between meters and native units
 
-	private int distanceToNativeUnits(double positionMeters) {
+	private double distanceToNativeUnits(double positionMeters) {
 		double wheelRotations = positionMeters/(Math.PI * DrivetrainConstants.wheelDiameterMeters);
-		double motorRotations = wheelRotations * DrivetrainConstants.lowGearRatio;
-		int sensorCounts = (int)(motorRotations * DrivetrainConstants.encoderCPR);
-		return sensorCounts;
+		double motorRotations = wheelRotations * this.gearRatio;
+		return motorRotations * DrivetrainConstants.encoderCPR;
 	}
 
-	private int velocityToNativeUnits(double velocityMetersPerSecond) {
+	private double velocityToNativeUnits(double velocityMetersPerSecond) {
 		double wheelRotationsPerSecond = velocityMetersPerSecond/(Math.PI * DrivetrainConstants.wheelDiameterMeters);
-		double motorRotationsPerSecond = wheelRotationsPerSecond * DrivetrainConstants.lowGearRatio;
+		double motorRotationsPerSecond = wheelRotationsPerSecond * this.gearRatio;
 		double motorRotationsPer100ms = motorRotationsPerSecond / k100msPerSecond;
-		int sensorCountsPer100ms = (int)(motorRotationsPer100ms * DrivetrainConstants.encoderCPR);
-		return sensorCountsPer100ms;
-	}
-
-	/*
-	private double nativeUnitsToDistanceMeters(double sensorCounts) {
-		double motorRotations = (double)sensorCounts / DrivetrainConstants.encoderCPR;
-		double wheelRotations = motorRotations / DrivetrainConstants.lowGearRatio;
-		double positionMeters = wheelRotations * (Math.PI * DrivetrainConstants.kWheelDiameterMeters);
-		return positionMeters;
+		return motorRotationsPer100ms * DrivetrainConstants.encoderCPR;
 	}
-	*/
 }
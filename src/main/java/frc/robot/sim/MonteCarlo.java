@@ -0,0 +1,501 @@
+package frc.robot.sim;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.geometry.Translation2d;
+import edu.wpi.first.wpilibj.Timer;
+import edu.wpi.first.wpilibj2.command.CommandScheduler;
+
+import frc.robot.AutonomousRoutines;
+import frc.robot.FieldConstants;
+import frc.robot.Robot;
+import frc.robot.subsystems.Drivetrain;
+
+/**
+ * Runs every autonomous routine hundreds of times in headless simulation, each time on a slightly
+ * different robot, and reports how consistently the routines end up where they should.
+ *
+ * Each trial is its own JVM running the robot program with `SIM_AUTONOMOUS`, since HAL, the
+ * CommandScheduler and NetworkTables only exist once per process. Trials run `--parallel` at a
+ * time, one per core by default. Every trial but the first of each routine draws the drivebase
+ * mass and moment of inertia from a normal distribution around the CAD values, turns on the
+ * drivetrain model's measurement noise, and sets the robot down a little off its start pose. The
+ * first trial is the unperturbed robot, which every other trial of the routine is compared to.
+ *
+ * For each routine this prints the distribution of end poses, how far they missed the nominal
+ * end, how far odometry drifted from the truth, how long the routine took and, for routines that
+ * end on the charge station, how often they stopped where the unperturbed robot did. Every trial is
+ * also written to a CSV.
+ *
+ * `./gradlew monteCarlo --args="monte-carlo.csv --runs=200 --parallel=8 --mass-std=0.1 --moi-std=0.2 --noise=1 --start-xy-std=0.05 --start-heading-std=2"`
+ *
+ * The simulated field is flat, so the charge station never tips and Balance never ends. A routine
+ * that balances is done once it has come to rest, and it is repeatable when it came to rest within
+ * the middle half of a charge station's size of where the unperturbed robot stopped. End poses are
+ * relative to the routine's start rather than the field, so this measures how consistently the
+ * routine stops, not whether it stopped on the charge station.
+ *
+ * Each trial's console output, log and flight recording are kept in
+ * `build/monte-carlo/<routine>/<trial>`, so an outlier can be replayed.
+ */
+public final class MonteCarlo {
+	/// Marks the line a trial reports its result on
+	private static final String resultPrefix = "[Monte Carlo]";
+
+	/// Slower than this in m/s counts as at rest
+	private static final double restSpeed = 0.05;
+
+	/// The lowest a drawn mass or moment of inertia may be, as a fraction of its nominal value
+	private static final double minimumScale = 0.5;
+
+	private int runs = 200;
+	private int parallel = Runtime.getRuntime().availableProcessors();
+	private double seconds = 15;
+	private double timeout = 120;
+	private long seed = 2928;
+	private String routine;
+
+	// Standard deviations of the perturbations
+	private double massStdDev = 0.1; // fraction of the nominal mass
+	private double moiStdDev = 0.2; // fraction of the nominal moment of inertia
+	private double noiseScale = 1; // multiplier on the model's measurement noise, not drawn
+	private double startXYStdDev = 0.05; // meters
+	private double startHeadingStdDev = 2; // degrees
+
+	private final Path directory = Paths.get("build", "monte-carlo");
+
+	private MonteCarlo() {}
+
+	public static void main(String... args) throws IOException, InterruptedException {
+		final MonteCarlo monteCarlo = new MonteCarlo();
+		Path output = Paths.get("monte-carlo.csv");
+
+		for(final String arg : args) {
+			if(arg.startsWith("--runs=")) monteCarlo.runs = (int)MonteCarlo.option(arg);
+			else if(arg.startsWith("--parallel=")) monteCarlo.parallel = (int)MonteCarlo.option(arg);
+			else if(arg.startsWith("--seconds=")) monteCarlo.seconds = MonteCarlo.option(arg);
+			else if(arg.startsWith("--timeout=")) monteCarlo.timeout = MonteCarlo.option(arg);
+			else if(arg.startsWith("--seed=")) monteCarlo.seed = (long)MonteCarlo.option(arg);
+			else if(arg.startsWith("--routine=")) monteCarlo.routine = arg.substring(arg.indexOf('=') + 1);
+			else if(arg.startsWith("--mass-std=")) monteCarlo.massStdDev = MonteCarlo.option(arg);
+			else if(arg.startsWith("--moi-std=")) monteCarlo.moiStdDev = MonteCarlo.option(arg);
+			else if(arg.startsWith("--noise=")) monteCarlo.noiseScale = MonteCarlo.option(arg);
+			else if(arg.startsWith("--start-xy-std=")) monteCarlo.startXYStdDev = MonteCarlo.option(arg);
+			else if(arg.startsWith("--start-heading-std=")) monteCarlo.startHeadingStdDev = MonteCarlo.option(arg);
+			else if(arg.startsWith("--")) {
+				System.err.println("Usage: MonteCarlo [output.csv] [--runs=n] [--parallel=n] [--seconds=s] [--timeout=s] [--seed=n] [--routine=name]");
+				System.err.println("                  [--mass-std=fraction] [--moi-std=fraction] [--noise=scale] [--start-xy-std=m] [--start-heading-std=deg]");
+				System.exit(2);
+			}
+			else output = Paths.get(arg);
+		}
+
+		monteCarlo.run(output);
+	}
+
+	private static double option(String arg) {
+		return Double.parseDouble(arg.substring(arg.indexOf('=') + 1));
+	}
+
+	private void run(Path output) throws IOException, InterruptedException {
+		final long start = System.nanoTime();
+
+		final List<String> routines = this.routine != null ? List.of(this.routine) : Arrays.asList(AutonomousRoutines.routines);
+
+		// Drawn up front and in order, so a seed always gives the same trials however they are scheduled
+		final Random random = new Random(this.seed);
+		final List<Trial> trials = new ArrayList<>();
+		for(final String routine : routines) {
+			trials.add(new Trial(routine, 0, DrivebaseSimFX.nominalMassKg, DrivebaseSimFX.nominalMoiKgMetersSquared, 0, 0, 0, 0));
+			for(int i = 1; i < this.runs; i++) trials.add(this.perturb(routine, i, random));
+		}
+
+		System.out.println(String.format(Locale.ROOT, "Running %d trials, %d at a time", trials.size(), this.parallel));
+
+		final ExecutorService pool = Executors.newFixedThreadPool(this.parallel);
+		final List<Future<Result>> futures = new ArrayList<>();
+		for(final Trial trial : trials) futures.add(pool.submit(() -> this.launch(trial)));
+		pool.shutdown();
+
+		final List<Result> results = new ArrayList<>();
+		for(final Future<Result> future : futures) {
+			try {
+				results.add(future.get());
+			} catch(ExecutionException e) {
+				throw new IOException(e.getCause());
+			}
+		}
+
+		try(BufferedWriter csv = Files.newBufferedWriter(output)) {
+			csv.write("Routine,Trial,Mass,MOI,Noise,Start X,Start Y,Start Heading,End X,End Y,End Heading,Speed,Odometry Error,Done,Repeatable,Error\n");
+
+			for(final String routine : routines) {
+				final Result nominal = MonteCarlo.nominal(results, routine);
+
+				for(final Result result : results) {
+					if(!result.trial.routine.equals(routine)) continue;
+
+					final Trial trial = result.trial;
+					csv.write(String.format(
+						Locale.ROOT,
+						"\"%s\",%d,%.3f,%.4f,%.2f,%.4f,%.4f,%.3f,%.4f,%.4f,%.3f,%.4f,%.4f,%.3f,%s,\"%s\"\n",
+						routine, trial.index,
+						trial.massKg, trial.moiKgMetersSquared, trial.noiseScale,
+						trial.startX, trial.startY, trial.startHeadingDegrees,
+						result.endX, result.endY, result.endHeading,
+						result.speed, result.odometryError, result.done,
+						AutonomousRoutines.balances(routine) && nominal != null ? MonteCarlo.repeatable(result, nominal) : "",
+						result.error != null ? result.error : ""
+					));
+				}
+			}
+		}
+
+		for(final String routine : routines) this.summarize(routine, results);
+
+		System.out.println(String.format(Locale.ROOT, "%n%d trials in %.1fs", trials.size(), (System.nanoTime() - start) / 1e9));
+		System.out.println("Wrote " + output);
+	}
+
+	private Trial perturb(String routine, int index, Random random) {
+		return new Trial(
+			routine,
+			index,
+			DrivebaseSimFX.nominalMassKg * Math.max(MonteCarlo.minimumScale, 1 + random.nextGaussian() * this.massStdDev),
+			DrivebaseSimFX.nominalMoiKgMetersSquared * Math.max(MonteCarlo.minimumScale, 1 + random.nextGaussian() * this.moiStdDev),
+			this.noiseScale,
+			random.nextGaussian() * this.startXYStdDev,
+			random.nextGaussian() * this.startXYStdDev,
+			random.nextGaussian() * this.startHeadingStdDev
+		);
+	}
+
+	/// Runs `trial` in its own robot program and waits for its result
+	private Result launch(Trial trial) throws IOException, InterruptedException {
+		final Path directory = this.directory.resolve(trial.routine.replaceAll("[^A-Za-z0-9]+", "-")).resolve(Integer.toString(trial.index));
+		Files.createDirectories(directory);
+		final Path console = directory.resolve("console.txt");
+
+		final ProcessBuilder builder = new ProcessBuilder(
+			Paths.get(System.getProperty("java.home"), "bin", "java").toString(),
+			"-Djava.library.path=" + System.getProperty("java.library.path"),
+			"-cp", System.getProperty("java.class.path"),
+			"frc.robot.Main"
+		)
+			.directory(directory.toFile())
+			.redirectErrorStream(true)
+			.redirectOutput(console.toFile());
+
+		// No GUI, it would take the Driver Station over, and no recording to replay instead
+		builder.environment().remove("HALSIM_EXTENSIONS");
+		builder.environment().remove("REPLAY");
+		builder.environment().putAll(trial.environment(this.seconds));
+
+		final Process process = builder.start();
+		if(!process.waitFor((long)(this.timeout * 1000), TimeUnit.MILLISECONDS)) {
+			process.destroyForcibly().waitFor();
+			return Result.failed(trial, "timed out");
+		}
+
+		final Optional<String> line;
+		try(Stream<String> lines = Files.lines(console)) {
+			line = lines.filter(l -> l.startsWith(MonteCarlo.resultPrefix)).findFirst();
+		}
+
+		if(line.isEmpty()) return Result.failed(trial, "exited with " + process.exitValue() + " without a result, see " + console);
+
+		return Result.parse(trial, line.get());
+	}
+
+	private static Result nominal(List<Result> results, String routine) {
+		for(final Result result : results) {
+			if(result.trial.routine.equals(routine) && result.trial.index == 0 && result.error == null) return result;
+		}
+		return null;
+	}
+
+	/// Whether `result` came to rest within the middle half of a charge station's size around where `nominal` stopped
+	private static boolean repeatable(Result result, Result nominal) {
+		if(result.error != null || Double.isNaN(result.done) || Math.abs(result.speed) > MonteCarlo.restSpeed) return false;
+
+		// Along and across the direction the nominal robot ended up facing
+		final Translation2d offset = new Translation2d(result.endX - nominal.endX, result.endY - nominal.endY)
+			.rotateBy(Rotation2d.fromDegrees(-nominal.endHeading));
+
+		return Math.abs(offset.getX()) <= FieldConstants.Community.chargingStationLength / 4
+			&& Math.abs(offset.getY()) <= FieldConstants.Community.chargingStationWidth / 4;
+	}
+
+	private void summarize(String routine, List<Result> all) {
+		final List<Result> results = new ArrayList<>();
+		int failed = 0;
+		for(final Result result : all) {
+			if(!result.trial.routine.equals(routine)) continue;
+			if(result.error != null) failed++;
+			else results.add(result);
+		}
+
+		System.out.println(String.format(Locale.ROOT, "%n%s: %d trials, %d failed to run", routine, results.size() + failed, failed));
+		for(final Result result : all) {
+			if(result.trial.routine.equals(routine) && result.error != null) System.out.println("  trial " + result.trial.index + " " + result.error);
+		}
+
+		final Result nominal = MonteCarlo.nominal(all, routine);
+		if(nominal == null) {
+			System.out.println("  The unperturbed trial failed, nothing to compare to");
+			return;
+		}
+
+		final double[] x = new double[results.size()];
+		final double[] y = new double[results.size()];
+		final double[] heading = new double[results.size()];
+		final double[] miss = new double[results.size()];
+		final double[] drift = new double[results.size()];
+		final double[] done = new double[results.size()];
+		int finished = 0;
+		int repeatable = 0;
+
+		for(int i = 0; i < results.size(); i++) {
+			final Result result = results.get(i);
+			x[i] = result.endX;
+			y[i] = result.endY;
+			heading[i] = result.endHeading;
+			miss[i] = Math.hypot(result.endX - nominal.endX, result.endY - nominal.endY);
+			drift[i] = result.odometryError;
+			done[i] = result.done;
+
+			if(!Double.isNaN(result.done)) finished++;
+			if(MonteCarlo.repeatable(result, nominal)) repeatable++;
+		}
+
+		System.out.println(String.format(Locale.ROOT, "  nominal end      (%.3f, %.3f) %.1f deg", nominal.endX, nominal.endY, nominal.endHeading));
+		System.out.println("  end x (m)        " + MonteCarlo.distribution(x));
+		System.out.println("  end y (m)        " + MonteCarlo.distribution(y));
+		System.out.println("  end heading (deg)" + MonteCarlo.distribution(heading));
+		System.out.println("  miss (m)         " + MonteCarlo.distribution(miss));
+		System.out.println("  odometry (m)     " + MonteCarlo.distribution(drift));
+		System.out.println("  done (s)         " + MonteCarlo.distribution(done));
+		System.out.println(String.format(Locale.ROOT, "  done in time     %d/%d", finished, results.size()));
+		if(AutonomousRoutines.balances(routine)) {
+			System.out.println(String.format(Locale.ROOT, "  repeatable       %d/%d (%.1f%%)", repeatable, results.size(), results.isEmpty() ? 0 : 100.0 * repeatable / results.size()));
+		}
+	}
+
+	/// Mean, standard deviation and percentiles of `values`, leaving out NaNs
+	private static String distribution(double[] values) {
+		final double[] sorted = Arrays.stream(values).filter(v -> !Double.isNaN(v)).sorted().toArray();
+		if(sorted.length == 0) return " -";
+
+		final double mean = Arrays.stream(sorted).average().orElse(0);
+		final double variance = Arrays.stream(sorted).map(v -> (v - mean) * (v - mean)).sum() / sorted.length;
+
+		return String.format(
+			Locale.ROOT,
+			" mean %8.3f  std %7.3f  min %8.3f  p5 %8.3f  p50 %8.3f  p90 %8.3f  p95 %8.3f  max %8.3f",
+			mean, Math.sqrt(variance),
+			sorted[0],
+			MonteCarlo.percentile(sorted, 5), MonteCarlo.percentile(sorted, 50), MonteCarlo.percentile(sorted, 90), MonteCarlo.percentile(sorted, 95),
+			sorted[sorted.length - 1]
+		);
+	}
+
+	/// Nearest rank percentile of already sorted values
+	private static double percentile(double[] sorted, double percent) {
+		final int rank = (int)Math.ceil(percent / 100 * sorted.length);
+		return sorted[Math.max(0, Math.min(sorted.length - 1, rank - 1))];
+	}
+
+	/**
+	 * One run of one routine on one perturbed robot.
+	 *
+	 * The runner hands it to the robot program through the environment. There, `RobotIO` builds the
+	 * drivetrain from {@link #model()}, and `Robot` has it {@link #track} the routine and
+	 * {@link #report} how it went on the last line the runner reads.
+	 */
+	public static final class Trial {
+		private static final Trial current = Trial.fromEnvironment();
+
+		public final String routine;
+		public final int index;
+
+		public final double massKg;
+		public final double moiKgMetersSquared;
+		public final double noiseScale;
+
+		// Where the robot is set down, relative to where the routine expects it
+		public final double startX;
+		public final double startY;
+		public final double startHeadingDegrees;
+
+		private DrivebaseSimFX model;
+		private Drivetrain drivetrain;
+
+		// FPGA timestamps, NaN until they happen
+		private double started = Double.NaN;
+		private double finished = Double.NaN;
+		private double lastMoving = Double.NaN;
+
+		// The true and estimated poses when the routine started, so drift is measured from there
+		private Pose2d startPose = new Pose2d();
+		private Pose2d startEstimate = new Pose2d();
+
+		public Trial(String routine, int index, double massKg, double moiKgMetersSquared, double noiseScale, double startX, double startY, double startHeadingDegrees) {
+			this.routine = routine;
+			this.index = index;
+			this.massKg = massKg;
+			this.moiKgMetersSquared = moiKgMetersSquared;
+			this.noiseScale = noiseScale;
+			this.startX = startX;
+			this.startY = startY;
+			this.startHeadingDegrees = startHeadingDegrees;
+		}
+
+		/// The trial this robot program is running, or null when it was not started by the runner
+		public static Trial current() {
+			return Trial.current;
+		}
+
+		private static Trial fromEnvironment() {
+			final String index = System.getenv("MONTE_CARLO_TRIAL");
+			if(index == null || index.isEmpty()) return null;
+
+			return new Trial(
+				System.getenv("SIM_ROUTINE"),
+				Integer.parseInt(index),
+				Double.parseDouble(System.getenv("MONTE_CARLO_MASS")),
+				Double.parseDouble(System.getenv("MONTE_CARLO_MOI")),
+				Double.parseDouble(System.getenv("MONTE_CARLO_NOISE")),
+				Double.parseDouble(System.getenv("MONTE_CARLO_START_X")),
+				Double.parseDouble(System.getenv("MONTE_CARLO_START_Y")),
+				Double.parseDouble(System.getenv("MONTE_CARLO_START_HEADING"))
+			);
+		}
+
+		/// Everything the robot program needs to run this trial for `seconds` of autonomous
+		public Map<String, String> environment(double seconds) {
+			final Map<String, String> environment = new HashMap<>();
+			environment.put("SIM_AUTONOMOUS", Double.toString(seconds));
+			environment.put("SIM_ROUTINE", this.routine);
+			environment.put("MONTE_CARLO_TRIAL", Integer.toString(this.index));
+			environment.put("MONTE_CARLO_MASS", Double.toString(this.massKg));
+			environment.put("MONTE_CARLO_MOI", Double.toString(this.moiKgMetersSquared));
+			environment.put("MONTE_CARLO_NOISE", Double.toString(this.noiseScale));
+			environment.put("MONTE_CARLO_START_X", Double.toString(this.startX));
+			environment.put("MONTE_CARLO_START_Y", Double.toString(this.startY));
+			environment.put("MONTE_CARLO_START_HEADING", Double.toString(this.startHeadingDegrees));
+			return environment;
+		}
+
+		/// The perturbed drivebase, set down at the perturbed start pose
+		public DrivebaseSimFX model() {
+			if(this.model == null) {
+				this.model = new DrivebaseSimFX(this.massKg, this.moiKgMetersSquared, this.noiseScale);
+				this.model.setPose(new Pose2d(this.startX, this.startY, Rotation2d.fromDegrees(this.startHeadingDegrees)));
+			}
+			return this.model;
+		}
+
+		/// Watches `robot` run its autonomous routine. Call once from robotInit().
+		public void track(Robot robot) {
+			this.drivetrain = robot.robotContainer.drivetrain;
+
+			CommandScheduler.getInstance().onCommandInitialize(command -> {
+				if(command != robot.autonomousCommand) return;
+				this.started = Timer.getFPGATimestamp();
+				this.startPose = this.model().getPose();
+				this.startEstimate = this.drivetrain.getEstimatedPose();
+			});
+			CommandScheduler.getInstance().onCommandFinish(command -> {
+				if(command == robot.autonomousCommand) this.finished = Timer.getFPGATimestamp();
+			});
+
+			robot.addPeriodic(() -> {
+				if(Math.abs(this.model().getSpeedMetersPerSecond()) > MonteCarlo.restSpeed) this.lastMoving = Timer.getFPGATimestamp();
+			}, robot.getPeriod());
+		}
+
+		/// Prints how the trial went for the runner. Call once, when autonomous is over.
+		public void report() {
+			final Pose2d end = this.model().getPose();
+			final double speed = this.model().getSpeedMetersPerSecond();
+
+			// How far what the robot thinks it did strays from what it did
+			final Translation2d moved = end.relativeTo(this.startPose).getTranslation();
+			final Translation2d estimated = this.drivetrain.getEstimatedPose().relativeTo(this.startEstimate).getTranslation();
+
+			// Balance never ends on a flat field, so a routine that balances is done once it stops
+			double done = this.finished;
+			if(Double.isNaN(done) && AutonomousRoutines.balances(this.routine) && Math.abs(speed) <= MonteCarlo.restSpeed) done = this.lastMoving;
+
+			System.out.println(String.format(
+				Locale.ROOT,
+				"%s endX=%.4f endY=%.4f endHeading=%.3f speed=%.4f odometryError=%.4f done=%.3f",
+				MonteCarlo.resultPrefix,
+				end.getX(), end.getY(), end.getRotation().getDegrees(),
+				speed,
+				moved.getDistance(estimated),
+				done - this.started
+			));
+			System.out.flush();
+		}
+	}
+
+	/// What a trial reported, or why it did not
+	private static final class Result {
+		final Trial trial;
+		final String error;
+
+		double endX = Double.NaN;
+		double endY = Double.NaN;
+		double endHeading = Double.NaN;
+		double speed = Double.NaN;
+		double odometryError = Double.NaN;
+		double done = Double.NaN; // seconds from the start of the routine, NaN when it never got there
+
+		private Result(Trial trial, String error) {
+			this.trial = trial;
+			this.error = error;
+		}
+
+		static Result failed(Trial trial, String error) {
+			return new Result(trial, error);
+		}
+
+		static Result parse(Trial trial, String line) {
+			final Map<String, Double> values = new HashMap<>();
+			for(final String field : line.substring(MonteCarlo.resultPrefix.length()).trim().split(" ")) {
+				final int equals = field.indexOf('=');
+				if(equals > 0) values.put(field.substring(0, equals), Double.parseDouble(field.substring(equals + 1)));
+			}
+
+			final Result result = new Result(trial, null);
+			result.endX = values.getOrDefault("endX", Double.NaN);
+			result.endY = values.getOrDefault("endY", Double.NaN);
+			result.endHeading = values.getOrDefault("endHeading", Double.NaN);
+			result.speed = values.getOrDefault("speed", Double.NaN);
+			result.odometryError = values.getOrDefault("odometryError", Double.NaN);
+			result.done = values.getOrDefault("done", Double.NaN);
+			return result;
+		}
+	}
+}
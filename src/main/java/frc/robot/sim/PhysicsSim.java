@@ -94,9 +94,6 @@ public class PhysicsSim {
 	 * Holds information about a simulated device.
 	 */
 	static class SimProfile {
-		private long _lastTime;
-		private boolean _running = false;
-
 		/**
 		 * Runs the simulation profile.
 		 * Implemented by device-specific profiles.
@@ -104,20 +101,10 @@ public class PhysicsSim {
 		public void run() {}
 
 		/**
-		 * Returns the time since last call, in milliseconds.
+		 * Returns the virtual time since the last loop, in milliseconds.
 		 */
 		protected double getPeriod() {
-			// set the start time if not yet running
-			if(!_running) {
-				_lastTime = System.nanoTime();
-				_running = true;
-			}
-
-			long now = System.nanoTime();
-			final double period = (now - _lastTime) / 1000000.;
-			_lastTime = now;
-
-			return period;
+			return SimClock.dt() * 1000;
 		}
 	}
 }
@@ -0,0 +1,165 @@
+package frc.robot.sim;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Locale;
+
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
+
+import frc.robot.Constants.FlightRecorderConstants;
+import frc.robot.Constants.VisionConstants;
+import frc.robot.subsystems.FlightLog;
+import frc.robot.subsystems.PoseEstimation;
+import frc.robot.subsystems.VisionMeasurement;
+import frc.robot.subsystems.VisionPipeline;
+
+/**
+ * Reruns the drivetrain's pose estimation over a flight recording on the desktop.
+ *
+ * Every loop's sensor snapshot, vision measurements and odometry resets are fed through
+ * {@link PoseEstimation}, the same class the robot runs, in the order the robot ran them. The
+ * vision standard deviation model and a latency offset can be overridden to see how the estimate
+ * would have turned out with other values. Nothing waits on a clock, so a match takes seconds.
+ *
+ * Writes a CSV with the recorded, replayed and wheel-only poses for every loop, and prints how
+ * far the replay strayed from what the robot estimated.
+ *
+ * `./gradlew replay --args="flight-1234.bin replay.csv --xy-std=0.3 --theta-std=0.9 --distance-scale=0.25 --latency=0"`
+ *
+ * Runs at the main loop rate only, so recordings made with the odometry thread enabled will not
+ * replay exactly. The estimator starts from the first recorded estimate rather than the boot time
+ * Limelight pose, which was never recorded.
+ */
+public final class Replay {
+	// Vision model, defaulting to what the robot runs
+	private double baseXYStdDev = VisionConstants.baseXYStdDev;
+	private double baseThetaStdDev = VisionConstants.baseThetaStdDev;
+	private double distanceStdDevScale = VisionConstants.distanceStdDevScale;
+
+	/// Seconds added to every vision capture time
+	private double latencyOffset = 0;
+
+	private Replay() {}
+
+	public static void main(String... args) throws IOException {
+		final Replay replay = new Replay();
+		Path input = null;
+		Path output = null;
+
+		for(final String arg : args) {
+			if(arg.startsWith("--xy-std=")) replay.baseXYStdDev = Replay.option(arg);
+			else if(arg.startsWith("--theta-std=")) replay.baseThetaStdDev = Replay.option(arg);
+			else if(arg.startsWith("--distance-scale=")) replay.distanceStdDevScale = Replay.option(arg);
+			else if(arg.startsWith("--latency=")) replay.latencyOffset = Replay.option(arg);
+			else if(input == null) input = Paths.get(arg);
+			else output = Paths.get(arg);
+		}
+
+		if(input == null) {
+			System.err.println("Usage: Replay <recording.bin> [output.csv] [--xy-std=m] [--theta-std=rad] [--distance-scale=x] [--latency=s]");
+			System.exit(2);
+		}
+
+		if(output == null) output = Paths.get(input.toString().replaceFirst("\\.bin$", "") + "-replay.csv");
+
+		replay.run(FlightLog.read(input), output);
+	}
+
+	private static double option(String arg) {
+		return Double.parseDouble(arg.substring(arg.indexOf('=') + 1));
+	}
+
+	private void run(FlightLog log, Path output) throws IOException {
+		final long start = System.nanoTime();
+
+		final int time = log.require("Drivetrain/Input Time");
+		final int yaw = log.require("Drivetrain/Yaw");
+		final int left = log.require("Drivetrain/Left Distance");
+		final int right = log.require("Drivetrain/Right Distance");
+		final int epoch = log.require("Drivetrain/Epoch");
+		final int resetX = log.require("Drivetrain/Reset X");
+		final int resetY = log.require("Drivetrain/Reset Y");
+		final int resetHeading = log.require("Drivetrain/Reset Heading");
+		final int recordedX = log.require("Drivetrain/Estimated X");
+		final int recordedY = log.require("Drivetrain/Estimated Y");
+		final int recordedHeading = log.require("Drivetrain/Estimated Heading");
+		final int visionCount = log.require("Vision/Count");
+
+		if(log.rows() == 0) throw new IOException("Recording has no rows");
+
+		// The recorded yaw is in degrees, like every update below
+		final PoseEstimation estimation = new PoseEstimation(
+			Rotation2d.fromDegrees(log.get(yaw, 0)),
+			new Pose2d(log.get(recordedX, 0), log.get(recordedY, 0), Rotation2d.fromDegrees(log.get(recordedHeading, 0)))
+		);
+
+		double squaredError = 0;
+		double lastEpoch = log.get(epoch, 0);
+
+		try(BufferedWriter csv = Files.newBufferedWriter(output)) {
+			csv.write("Timestamp,Recorded X,Recorded Y,Recorded Heading,Replayed X,Replayed Y,Replayed Heading,Encoder X,Encoder Y,Encoder Heading,Vision Accepted,Vision Rejected\n");
+
+			for(int row = 0; row < log.rows(); row++) {
+				final Rotation2d rotation = Rotation2d.fromDegrees(log.get(yaw, row));
+
+				// The same order as Drivetrain.periodic(): odometry, then this loop's vision
+				estimation.update(log.get(time, row), rotation, log.get(left, row), log.get(right, row));
+
+				final int measurements = Math.min((int)log.get(visionCount, row), FlightRecorderConstants.visionSlots);
+				for(int slot = 0; slot < measurements; slot++) {
+					estimation.addVision(this.measurement(log, slot, row));
+				}
+				estimation.fuseVision();
+
+				// Commands run after the drivetrain, so a reset recorded this loop applies from the next one
+				if(log.get(epoch, row) != lastEpoch) {
+					lastEpoch = log.get(epoch, row);
+					estimation.resetOdometry(rotation, new Pose2d(log.get(resetX, row), log.get(resetY, row), Rotation2d.fromDegrees(log.get(resetHeading, row))));
+				}
+
+				final Pose2d replayed = estimation.getEstimatedPose();
+				final Pose2d encoder = estimation.getEncoderPose();
+				squaredError += Math.pow(replayed.getX() - log.get(recordedX, row), 2) + Math.pow(replayed.getY() - log.get(recordedY, row), 2);
+
+				csv.write(String.format(
+					Locale.ROOT,
+					"%.6f,%.4f,%.4f,%.3f,%.4f,%.4f,%.3f,%.4f,%.4f,%.3f,%d,%d\n",
+					log.get(time, row),
+					log.get(recordedX, row), log.get(recordedY, row), log.get(recordedHeading, row),
+					replayed.getX(), replayed.getY(), replayed.getRotation().getDegrees(),
+					encoder.getX(), encoder.getY(), encoder.getRotation().getDegrees(),
+					estimation.getVisionFusion().getAccepted(), estimation.getVisionFusion().getRejected()
+				));
+			}
+		}
+
+		final double seconds = (System.nanoTime() - start) / 1e9;
+		final double recordedSeconds = log.get(time, log.rows() - 1) - log.get(time, 0);
+
+		System.out.println(String.format(Locale.ROOT, "Replayed %d loops (%.1fs of robot time) in %.2fs", log.rows(), recordedSeconds, seconds));
+		System.out.println(String.format(Locale.ROOT, "Vision: %d accepted, %d rejected", estimation.getVisionFusion().getAccepted(), estimation.getVisionFusion().getRejected()));
+		System.out.println(String.format(Locale.ROOT, "RMS distance from the recorded estimate: %.4fm", Math.sqrt(squaredError / log.rows())));
+		System.out.println("Wrote " + output);
+	}
+
+	private VisionMeasurement measurement(FlightLog log, int slot, int row) {
+		final String prefix = "Vision/" + slot + "/";
+
+		final int camera = (int)log.get(log.require(prefix + "Camera"), row);
+		final int tags = (int)log.get(log.require(prefix + "Tags"), row);
+		final double distance = log.get(log.require(prefix + "Distance"), row);
+
+		return new VisionMeasurement(
+			camera >= 0 && camera < VisionConstants.cameras.length ? VisionConstants.cameras[camera].name : "unknown",
+			new Pose2d(log.get(log.require(prefix + "X"), row), log.get(log.require(prefix + "Y"), row), Rotation2d.fromDegrees(log.get(log.require(prefix + "Heading"), row))),
+			log.get(log.require(prefix + "Time"), row) + this.latencyOffset,
+			VisionPipeline.stdDevs(tags, distance, this.baseXYStdDev, this.baseThetaStdDev, this.distanceStdDevScale),
+			tags,
+			distance
+		);
+	}
+}
@@ -0,0 +1,64 @@
+package frc.robot.sim;
+
+import java.util.Locale;
+
+import edu.wpi.first.wpilibj.TimedRobot;
+import edu.wpi.first.wpilibj.Timer;
+import edu.wpi.first.wpilibj.simulation.SimHooks;
+import frc.robot.subsystems.Log;
+
+/**
+ * Virtual time for simulation.
+ *
+ * Every model steps by {@link #dt()}, the FPGA time that passed since the previous loop, rather
+ * than by a fixed period or the wall clock. Normally the FPGA clock follows the wall clock, so
+ * nothing changes. Once {@link #startUnthrottled} is called it is paused and stepped from a
+ * background thread instead, one robot period at a time, as soon as the previous loop has
+ * finished. TimedRobot, the CommandScheduler, `Timer` and every model then advance in lockstep,
+ * as fast as the host can run the loop.
+ */
+public final class SimClock {
+	private static double lastTime = Double.NaN;
+	private static double dt = TimedRobot.kDefaultPeriod;
+
+	private SimClock() {}
+
+	/// Measures how much virtual time passed since the last loop. Call once at the start of every loop in simulation.
+	public static void update() {
+		final double now = Timer.getFPGATimestamp();
+		if(!Double.isNaN(SimClock.lastTime) && now > SimClock.lastTime) SimClock.dt = now - SimClock.lastTime;
+		SimClock.lastTime = now;
+	}
+
+	/// Virtual seconds since the previous loop, or the default loop period before the first one
+	public static double dt() {
+		return SimClock.dt;
+	}
+
+	/**
+	 * Detaches the FPGA clock from the wall clock and steps it as fast as the robot keeps up.
+	 *
+	 * `SimHooks.stepTiming` only returns once every notifier due in the step has run and is waiting
+	 * again, so each step is exactly one full robot loop.
+	 *
+	 * @param periodSeconds how far to step the clock each time, normally the robot's loop period
+	 * @param durationSeconds virtual time to run for before calling `finished`, or infinity
+	 * @param finished called from the stepping thread, while the robot loop is waiting, once the duration has passed
+	 */
+	public static void startUnthrottled(double periodSeconds, double durationSeconds, Runnable finished) {
+		SimHooks.pauseTiming();
+
+		final Thread stepper = new Thread(() -> {
+			final long start = System.nanoTime();
+
+			for(double elapsed = 0; elapsed < durationSeconds; elapsed += periodSeconds) {
+				SimHooks.stepTiming(periodSeconds);
+			}
+
+			Log.writeln(String.format(Locale.ROOT, "[Sim Clock] %.1fs simulated in %.3fs", durationSeconds, (System.nanoTime() - start) / 1e9));
+			if(finished != null) finished.run();
+		}, "Sim Clock");
+		stepper.setDaemon(true);
+		stepper.start();
+	}
+}
@@ -0,0 +1,51 @@
+package frc.robot.sim;
+
+import edu.wpi.first.wpilibj.RobotController;
+import edu.wpi.first.wpilibj.motorcontrol.MotorController;
+
+/**
+ * A motor controller that only remembers what it was told, for IO implementations with no
+ * hardware behind them. The physics models read the output back from {@link #get()}.
+ */
+public final class SimMotor implements MotorController {
+	private double output;
+	private boolean inverted;
+	private boolean disabled;
+
+	@Override
+	public void set(double speed) {
+		this.disabled = false;
+		this.output = Math.max(-1, Math.min(1, this.inverted ? -speed : speed));
+	}
+
+	@Override
+	public void setVoltage(double outputVolts) {
+		this.set(outputVolts / RobotController.getBatteryVoltage());
+	}
+
+	/// Applied output as a fraction of full output, after inversion
+	@Override
+	public double get() {
+		return this.disabled ? 0 : this.output;
+	}
+
+	@Override
+	public void setInverted(boolean isInverted) {
+		this.inverted = isInverted;
+	}
+
+	@Override
+	public boolean getInverted() {
+		return this.inverted;
+	}
+
+	@Override
+	public void disable() {
+		this.disabled = true;
+	}
+
+	@Override
+	public void stopMotor() {
+		this.output = 0;
+	}
+}
@@ -1,74 +1,39 @@
 package frc.robot.subsystems;
 
-import com.ctre.phoenix.motorcontrol.*;
-import com.ctre.phoenix.motorcontrol.can.WPI_TalonFX;
-import com.ctre.phoenix.sensors.WPI_CANCoder;
-
 import edu.wpi.first.math.MathUtil;
-import edu.wpi.first.wpilibj.PneumaticsModuleType;
-import edu.wpi.first.wpilibj.Solenoid;
 import edu.wpi.first.wpilibj2.command.SubsystemBase;
-import frc.robot.Constants;
 import frc.robot.Constants.ArmConstants;
-import frc.robot.Constants.CANBusIDs;
+import frc.robot.sim.SimClock;
 
 public class Arm extends SubsystemBase {
-	public final WPI_TalonFX motorLead = new WPI_TalonFX(Constants.CANBusIDs.ArmTalonLeader);
-	public final WPI_TalonFX motorFollower = new WPI_TalonFX(Constants.CANBusIDs.ArmTalonFollower);
-
-	public final WPI_CANCoder encoder = new WPI_CANCoder(Constants.CANBusIDs.ArmEncoder);
-
-	// True: Unlocked
-	// False: Locked
-	private final Solenoid lockingPiston = new Solenoid(PneumaticsModuleType.REVPH, Constants.PneumaticIDs.armLock);
-
-	public Arm() {
-		for(final WPI_TalonFX fx : new WPI_TalonFX[] { this.motorLead, this.motorFollower}) {
-			// Reset settings for safety
-			fx.configFactoryDefault();
-
-			// Sets voltage compensation to 10, used for percent output
-			fx.configVoltageCompSaturation(10);
-			fx.enableVoltageCompensation(true);
-
-			// Setting just in case
-			fx.configNominalOutputForward(0);
-			fx.configNominalOutputReverse(0);
-			fx.configPeakOutputForward(1);
-			fx.configPeakOutputReverse(-1);
-
-			fx.configOpenloopRamp(0.1);
-
-			// Setting deadband(area required to start moving the motor) to 1%
-			fx.configNeutralDeadband(0.01);
-
-			// Set to brake mode, will brake the motor when no power is sent
-			fx.setNeutralMode(NeutralMode.Brake);
+	public final ArmIO io;
 
-			/**
-			 * Setting input side current limit (amps)
-			 * 45 continious, 80 peak, 30 millieseconds allowed at peak
-			 * 40 amp breaker can support above 40 amps for a little bit
-			 * Falcons have insane acceleration so allowing it to reach 80 for 0.03 seconds
-			 * should be fine
-			 */
-			fx.configSupplyCurrentLimit(new SupplyCurrentLimitConfiguration(true, 40, 55, 20));
+	private final LoopProfiler.Section profile = LoopProfiler.section("Arm");
 
-			// Either using the integrated Falcon sensor or an external one, will change if
-			// needed
-			fx.configSelectedFeedbackSensor(FeedbackDevice.IntegratedSensor);
+	public Arm(ArmIO io) {
+		this.io = io;
 
-			fx.configRemoteFeedbackFilter(CANBusIDs.ArmEncoder, RemoteSensorSource.CANCoder, 0, 0);
-			fx.configSelectedFeedbackSensor(FeedbackDevice.RemoteSensor0);
-		}
+		Telemetry.track("Arm Position", this::getPosition, Telemetry.Rate.Fast);
+		Telemetry.track("Arm Limit", this.io::isLimitClosed, Telemetry.Rate.Medium);
+	}
 
-		this.motorFollower.setInverted(InvertType.FollowMaster);
-		this.motorFollower.follow(this.motorLead);
+	/// Declares the Talon configuration, which RobotContainer applies to every device at once
+	public void configureMotors(DeviceConfigurator configurator) {
+		this.io.configureMotors(configurator);
+	}
 
-		this.motorLead.configReverseLimitSwitchSource(LimitSwitchSource.FeedbackConnector, LimitSwitchNormal.NormallyOpen);
+	/// Declares the status frames the arm reads, which RobotContainer applies to every device at once
+	public void configureStatusFrames(StatusFramePolicy statusFrames) {
+		this.io.configureStatusFrames(statusFrames);
+	}
 
-		Telemetry.track("Arm Position", this::getPosition, false);
-		Telemetry.track("Arm Limit", () -> this.motorLead.getSensorCollection().isRevLimitSwitchClosed() == 1, false);
+	/// Declares what the flight recorder should capture from the arm every loop
+	public void configureRecorder(FlightRecorder recorder) {
+		recorder
+			.column("Arm/Position", this::getPosition)
+			.column("Arm/Output", this.io::getOutput)
+			.flag("Arm/Limit", this.io::isLimitClosed)
+			.flag("Arm/Unlocked", this.io::isUnlocked);
 	}
 
 	public void halt() {
@@ -86,16 +51,16 @@ public class Arm extends SubsystemBase {
 	}
 
 	public void setPower(final double power) {
-		this.motorLead.set(ControlMode.PercentOutput, MathUtil.clamp(power, -0.5, 0.5));
+		this.io.setOutput(MathUtil.clamp(power, -0.5, 0.5));
 	}
 
 	public void lock(final boolean shouldLock) {
-		this.lockingPiston.set(!shouldLock);
-		this.motorLead.set(ControlMode.PercentOutput, 0.0); // just to be safe
+		this.io.setUnlocked(!shouldLock);
+		this.io.setOutput(0.0); // just to be safe
 	}
 
 	public double getPosition() {
-		return this.encoder.getAbsolutePosition();
+		return this.io.getPosition();
 	}
 
 	private boolean pastTopLimit() {
@@ -113,11 +78,20 @@ public class Arm extends SubsystemBase {
 
 	@Override
 	public void periodic() {
+		this.profile.start();
+
 		if(this.pastBottomLimit() || this.pastTopLimit()) this.halt();
 
-		if(this.motorLead.getSensorCollection().isRevLimitSwitchClosed() == 1) {
+		if(this.io.isLimitClosed()) {
             //System.out.println(this.encoder.getAbsolutePosition());
-			this.encoder.configMagnetOffset(this.encoder.configGetMagnetOffset() - (this.encoder.getAbsolutePosition() - ArmConstants.armLimitSwitchOffset));
+			this.io.recalibrate(ArmConstants.armLimitSwitchOffset);
 		}
+
+		this.profile.stop();
+	}
+
+	@Override
+	public void simulationPeriodic() {
+		this.io.simulate(SimClock.dt());
 	}
 }
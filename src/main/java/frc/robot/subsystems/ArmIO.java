@@ -0,0 +1,224 @@
+package frc.robot.subsystems;
+
+import com.ctre.phoenix.motorcontrol.ControlMode;
+import com.ctre.phoenix.motorcontrol.InvertType;
+import com.ctre.phoenix.motorcontrol.LimitSwitchNormal;
+import com.ctre.phoenix.motorcontrol.LimitSwitchSource;
+import com.ctre.phoenix.motorcontrol.RemoteSensorSource;
+import com.ctre.phoenix.motorcontrol.StatusFrameEnhanced;
+import com.ctre.phoenix.motorcontrol.can.WPI_TalonFX;
+import com.ctre.phoenix.sensors.CANCoderStatusFrame;
+import com.ctre.phoenix.sensors.WPI_CANCoder;
+
+import edu.wpi.first.wpilibj.PneumaticsModuleType;
+import edu.wpi.first.wpilibj.Solenoid;
+import frc.robot.Constants;
+import frc.robot.Constants.ArmConstants;
+import frc.robot.Constants.CANBusIDs;
+import frc.robot.Constants.SimulationConstants;
+import frc.robot.Constants.StatusFrameConstants;
+
+/**
+ * Everything {@link Arm} needs from its motors, absolute encoder, limit switch and lock.
+ */
+public interface ArmIO {
+	/// Absolute arm angle, in degrees
+	double getPosition();
+
+	/// Whether the arm is resting on its limit switch
+	boolean isLimitClosed();
+
+	/// Percent output, as a fraction of full output
+	void setOutput(double output);
+	double getOutput();
+
+	void setUnlocked(boolean unlocked);
+	boolean isUnlocked();
+
+	/// Shifts the encoder so the current position reads `position`, used while the limit switch is closed
+	default void recalibrate(double position) {}
+
+	default void configureMotors(DeviceConfigurator configurator) {}
+
+	default void configureStatusFrames(StatusFramePolicy statusFrames) {}
+
+	/// Advances any simulated physics by `dtSeconds`
+	default void simulate(double dtSeconds) {}
+
+	/** The arm Talons, CANCoder and locking piston */
+	public static final class Real implements ArmIO {
+		public final WPI_TalonFX motorLead = new WPI_TalonFX(Constants.CANBusIDs.ArmTalonLeader);
+		public final WPI_TalonFX motorFollower = new WPI_TalonFX(Constants.CANBusIDs.ArmTalonFollower);
+
+		public final WPI_CANCoder encoder = new WPI_CANCoder(Constants.CANBusIDs.ArmEncoder);
+
+		// True: Unlocked
+		// False: Locked
+		private final Solenoid lockingPiston = new Solenoid(PneumaticsModuleType.REVPH, Constants.PneumaticIDs.armLock);
+
+		@Override
+		public double getPosition() {
+			return this.encoder.getAbsolutePosition();
+		}
+
+		@Override
+		public boolean isLimitClosed() {
+			return this.motorLead.getSensorCollection().isRevLimitSwitchClosed() == 1;
+		}
+
+		@Override
+		public void setOutput(double output) {
+			this.motorLead.set(ControlMode.PercentOutput, output);
+		}
+
+		@Override
+		public double getOutput() {
+			return this.motorLead.getMotorOutputPercent();
+		}
+
+		@Override
+		public void setUnlocked(boolean unlocked) {
+			this.lockingPiston.set(unlocked);
+		}
+
+		@Override
+		public boolean isUnlocked() {
+			return this.lockingPiston.get();
+		}
+
+		@Override
+		public void recalibrate(double position) {
+			this.encoder.configMagnetOffset(this.encoder.configGetMagnetOffset() - (this.encoder.getAbsolutePosition() - position));
+		}
+
+		@Override
+		public void configureMotors(DeviceConfigurator configurator) {
+			for(final WPI_TalonFX fx : new WPI_TalonFX[] { this.motorLead, this.motorFollower}) {
+				final DeviceConfigurator.Batch batch = configurator.device("Arm " + fx.getDeviceID())
+					// The remote sensor has to exist before the motor config selects it as feedback
+					.step("Remote Feedback Filter", timeout -> fx.configRemoteFeedbackFilter(CANBusIDs.ArmEncoder, RemoteSensorSource.CANCoder, 0, timeout))
+					.motor(fx, ArmConstants.motorConfig)
+					.verify(DeviceConfigurator.readBack(fx, config -> config.remoteFilter0.remoteSensorDeviceID == CANBusIDs.ArmEncoder))
+					.reapplyOnReset(fx);
+
+				if(fx == this.motorFollower) {
+					batch.then("Invert", () -> this.motorFollower.setInverted(InvertType.FollowMaster));
+					batch.then("Follow", () -> this.motorFollower.follow(this.motorLead));
+				} else {
+					batch.step("Limit Switch", timeout -> this.motorLead.configReverseLimitSwitchSource(LimitSwitchSource.FeedbackConnector, LimitSwitchNormal.NormallyOpen, timeout));
+				}
+			}
+
+			// The magnet offset is kept in its flash, but its status frame periods are lost when it resets
+			configurator.device("Arm Encoder").reapplyOnReset(this.encoder);
+		}
+
+		@Override
+		public void configureStatusFrames(StatusFramePolicy statusFrames) {
+			// The arm angle comes from the CANCoder directly, only the limit switch is read from the Talon
+			statusFrames.talon("Arm Leader", this.motorLead)
+				.frame(StatusFrameEnhanced.Status_1_General, StatusFrameConstants.normal)
+				.frame(StatusFrameEnhanced.Status_2_Feedback0, StatusFrameConstants.slow)
+				.frame(StatusFrameEnhanced.Status_4_AinTempVbat, StatusFrameConstants.slow)
+				.frame(StatusFrameEnhanced.Status_10_Targets, StatusFrameConstants.off)
+				.frame(StatusFrameEnhanced.Status_12_Feedback1, StatusFrameConstants.off)
+				.frame(StatusFrameEnhanced.Status_13_Base_PIDF0, StatusFrameConstants.off)
+				.frame(StatusFrameEnhanced.Status_14_Turn_PIDF1, StatusFrameConstants.off)
+				.frame(StatusFrameEnhanced.Status_Brushless_Current, StatusFrameConstants.slow);
+
+			statusFrames.follower("Follower " + this.motorFollower.getDeviceID(), this.motorFollower);
+
+			// Arm limits are checked against the absolute position every loop, the factory period is 100ms
+			statusFrames.canCoder("Arm Encoder", this.encoder)
+				.frame(CANCoderStatusFrame.SensorData, StatusFrameConstants.normal)
+				.frame(CANCoderStatusFrame.VbatAndFaults, StatusFrameConstants.off);
+		}
+	}
+
+	/** An arm that swings at a fixed rate per unit of output while unlocked, starting stowed */
+	public static final class Sim implements ArmIO {
+		private double position = ArmConstants.inPosition;
+		private double output;
+		private boolean unlocked;
+
+		@Override
+		public double getPosition() {
+			return this.position;
+		}
+
+		@Override
+		public boolean isLimitClosed() {
+			return this.position <= ArmConstants.armLimitSwitchOffset;
+		}
+
+		@Override
+		public void setOutput(double output) {
+			this.output = output;
+		}
+
+		@Override
+		public double getOutput() {
+			return this.output;
+		}
+
+		@Override
+		public void setUnlocked(boolean unlocked) {
+			this.unlocked = unlocked;
+		}
+
+		@Override
+		public boolean isUnlocked() {
+			return this.unlocked;
+		}
+
+		@Override
+		public void simulate(double dtSeconds) {
+			if(this.unlocked) this.position += this.output * SimulationConstants.armDegreesPerSecond * dtSeconds;
+		}
+	}
+
+	/** Arm sensors from a flight recording. Outputs go nowhere. */
+	public static final class Replay implements ArmIO {
+		private final FlightLog.Cursor cursor;
+		private final int position, limit;
+
+		private double output;
+		private boolean unlocked;
+
+		public Replay(FlightLog.Cursor cursor) {
+			this.cursor = cursor;
+			this.position = cursor.log().require("Arm/Position");
+			this.limit = cursor.log().require("Arm/Limit");
+		}
+
+		@Override
+		public double getPosition() {
+			return this.cursor.get(this.position);
+		}
+
+		@Override
+		public boolean isLimitClosed() {
+			return this.cursor.get(this.limit) != 0;
+		}
+
+		@Override
+		public void setOutput(double output) {
+			this.output = output;
+		}
+
+		@Override
+		public double getOutput() {
+			return this.output;
+		}
+
+		@Override
+		public void setUnlocked(boolean unlocked) {
+			this.unlocked = unlocked;
+		}
+
+		@Override
+		public boolean isUnlocked() {
+			return this.unlocked;
+		}
+	}
+}
@@ -0,0 +1,285 @@
+package frc.robot.subsystems;
+
+import java.util.ArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+import com.ctre.phoenix.ErrorCode;
+import com.ctre.phoenix.motorcontrol.can.BaseTalon;
+import com.ctre.phoenix.motorcontrol.can.TalonFXConfiguration;
+import com.ctre.phoenix.motorcontrol.can.TalonSRXConfiguration;
+import com.ctre.phoenix.motorcontrol.can.WPI_TalonFX;
+import com.ctre.phoenix.motorcontrol.can.WPI_TalonSRX;
+import com.ctre.phoenix.sensors.WPI_CANCoder;
+import com.ctre.phoenix.sensors.WPI_Pigeon2;
+
+import frc.robot.Constants.DeviceConfigConstants;
+
+/**
+ * Runs CTRE device configuration concurrently, one batch per device.
+ *
+ * Every `config*` call is a blocking round trip to its device, and each device handles them one
+ * at a time, so configuring devices one after another wastes most of boot waiting on the bus.
+ * Batches for different devices run on separate threads while the steps within a batch stay in
+ * order. Every step is sent with a timeout and retried if the device does not acknowledge it,
+ * then the batch is read back and rerun from the start if the device does not hold the values.
+ *
+ * Batches can also watch for a device reset (a brownout or power cycle restores factory
+ * settings) and are reapplied in the background when one is seen. Whoever else configures the
+ * device, such as {@link StatusFramePolicy}, is told through {@link #onReset} once that is done.
+ */
+public final class DeviceConfigurator {
+	/// A single configuration call, returning the device's acknowledgement
+	@FunctionalInterface
+	public interface Step {
+		ErrorCode apply(int timeoutMs);
+	}
+
+	/// Reads a batch back from the device, returning whether it holds what was sent
+	@FunctionalInterface
+	public interface Verify {
+		boolean verify(int timeoutMs);
+	}
+
+	private static final class NamedStep {
+		private final String name;
+		private final Step step;
+
+		private NamedStep(String name, Step step) {
+			this.name = name;
+			this.step = step;
+		}
+	}
+
+	/// Every configuration step for one device, applied in declaration order
+	public final class Batch {
+		private final String name;
+		private final ArrayList<NamedStep> steps = new ArrayList<>();
+		private final ArrayList<Verify> verifies = new ArrayList<>();
+		private Object resetDevice;
+		private BooleanSupplier resetDetector;
+
+		// Set while the batch is queued or running, so a reset is not reapplied twice at once
+		private volatile boolean running;
+
+		// Set while the batch is reapplied after a reset, rather than configured at startup
+		private volatile boolean reset;
+
+		private Batch(String name) {
+			this.name = name;
+		}
+
+		public Batch step(String name, Step step) {
+			this.steps.add(new NamedStep(name, step));
+			return this;
+		}
+
+		/// Adds a call that does not report an error, like `setInverted` or `follow`
+		public Batch then(String name, Runnable action) {
+			return this.step(name, timeoutMs -> {
+				action.run();
+				return ErrorCode.OK;
+			});
+		}
+
+		/// Reads the device back after every step succeeds, rerunning the batch on a mismatch
+		public Batch verify(Verify verify) {
+			this.verifies.add(verify);
+			return this;
+		}
+
+		/// Writes whatever part of `config` the Talon does not already hold, then verifies all of it
+		public Batch motor(BaseTalon talon, MotorConfig config) {
+			return this
+				.step("Motor Config", timeout -> config.apply(talon, timeout))
+				.verify(timeout -> config.verify(talon, timeout));
+		}
+
+		/// Reapplies the batch whenever `talon` reports it lost its settings
+		public Batch reapplyOnReset(BaseTalon talon) {
+			return this.reapplyOnReset(talon, talon::hasResetOccurred);
+		}
+
+		public Batch reapplyOnReset(WPI_Pigeon2 pigeon) {
+			return this.reapplyOnReset(pigeon, pigeon::hasResetOccurred);
+		}
+
+		public Batch reapplyOnReset(WPI_CANCoder canCoder) {
+			return this.reapplyOnReset(canCoder, canCoder::hasResetOccurred);
+		}
+
+		/// Reapplies the batch whenever `hasResetOccurred` reports `device` reset, it should clear itself once read like the CTRE sticky flags
+		public Batch reapplyOnReset(Object device, BooleanSupplier hasResetOccurred) {
+			this.resetDevice = device;
+			this.resetDetector = hasResetOccurred;
+			return this;
+		}
+
+		private void run() {
+			try {
+				// Clear the sticky flag left by the reset we are about to configure over
+				if(this.resetDetector != null) this.resetDetector.getAsBoolean();
+
+				for(int attempt = 1; attempt <= DeviceConfigConstants.attempts; attempt++) {
+					if(this.applySteps() && this.verifyAll()) {
+						return;
+					}
+
+					DeviceConfigurator.this.retries.incrementAndGet();
+					Log.warning("Configuring " + this.name + " failed, attempt " + attempt + " of " + DeviceConfigConstants.attempts);
+				}
+
+				DeviceConfigurator.this.failures.incrementAndGet();
+				Log.warning("Could not configure " + this.name);
+			} finally {
+				// Everything else the reset wiped is sent after the batch, which may restore factory defaults first
+				if(this.reset) {
+					this.reset = false;
+					final Consumer<Object> listener = DeviceConfigurator.this.resetListener;
+					if(listener != null) listener.accept(this.resetDevice);
+				}
+
+				this.running = false;
+			}
+		}
+
+		private boolean verifyAll() {
+			for(final Verify verify : this.verifies) {
+				if(!verify.verify(DeviceConfigConstants.timeoutMs)) return false;
+			}
+
+			return true;
+		}
+
+		private boolean applySteps() {
+			for(final NamedStep step : this.steps) {
+				ErrorCode error = step.step.apply(DeviceConfigConstants.timeoutMs);
+
+				for(int retry = 1; error != ErrorCode.OK && retry < DeviceConfigConstants.attempts; retry++) {
+					DeviceConfigurator.this.retries.incrementAndGet();
+					error = step.step.apply(DeviceConfigConstants.timeoutMs);
+				}
+
+				if(error != ErrorCode.OK) {
+					Log.warning(this.name + " " + step.name + ": " + error);
+					return false;
+				}
+			}
+
+			return true;
+		}
+	}
+
+	private final ArrayList<Batch> batches = new ArrayList<>();
+	private final ArrayList<Future<?>> pending = new ArrayList<>();
+	private final ExecutorService executor = Executors.newFixedThreadPool(DeviceConfigConstants.threads, runnable -> {
+		final Thread thread = new Thread(runnable, "Device Config");
+		thread.setDaemon(true);
+		return thread;
+	});
+
+	private volatile Consumer<Object> resetListener;
+
+	private final AtomicInteger retries = new AtomicInteger();
+	private final AtomicInteger failures = new AtomicInteger();
+	private double configureSeconds;
+
+	public DeviceConfigurator() {
+		Telemetry.track("Config Time", () -> this.configureSeconds, Telemetry.Rate.Slow);
+		Telemetry.track("Config Retries", this.retries::get, Telemetry.Rate.Slow);
+		Telemetry.track("Config Failures", this.failures::get, Telemetry.Rate.Slow);
+		Telemetry.track("Config Writes", MotorConfig.writes::get, Telemetry.Rate.Slow);
+	}
+
+	public Batch device(String name) {
+		final Batch batch = new Batch(name);
+		this.batches.add(batch);
+		return batch;
+	}
+
+	/// Calls `listener` with the device, from a configuration thread, each time a batch has been reapplied after its device reset
+	public void onReset(Consumer<Object> listener) {
+		this.resetListener = listener;
+	}
+
+	/// Starts every declared batch, returning immediately
+	public void start() {
+		for(final Batch batch : this.batches) this.pending.add(this.submit(batch));
+	}
+
+	/**
+	 * Waits for every started batch to finish.
+	 *
+	 * @return whether every batch was applied and verified
+	 */
+	public boolean await() {
+		final long start = System.nanoTime();
+
+		for(final Future<?> future : this.pending) {
+			try {
+				future.get(DeviceConfigConstants.awaitSeconds, TimeUnit.SECONDS);
+			} catch(Exception e) {
+				Log.error(e);
+			}
+		}
+		this.pending.clear();
+
+		this.configureSeconds = (System.nanoTime() - start) / 1e9;
+		Log.writeln("[Config] " + this.batches.size() + " devices in " + String.format("%.3f", this.configureSeconds) + "s, " + this.failures.get() + " failed");
+
+		return this.failures.get() == 0;
+	}
+
+	/// Reapplies any batch whose device reports a reset, without blocking. Call once per loop.
+	public void checkForResets() {
+		for(final Batch batch : this.batches) {
+			if(batch.resetDetector != null && !batch.running && batch.resetDetector.getAsBoolean()) {
+				Log.writeln("[Config] " + batch.name + " reset, reapplying");
+				batch.reset = true;
+				this.submit(batch);
+			}
+		}
+	}
+
+	private Future<?> submit(Batch batch) {
+		batch.running = true;
+		return this.executor.submit(batch::run);
+	}
+
+	/// Reads every setting back from `fx` and checks it against `check`
+	public static Verify readBack(WPI_TalonFX fx, Predicate<TalonFXConfiguration> check) {
+		return timeoutMs -> {
+			final TalonFXConfiguration config = new TalonFXConfiguration();
+			return fx.getAllConfigs(config, timeoutMs) == ErrorCode.OK && check.test(config);
+		};
+	}
+
+	/// Reads every setting back from `srx` and checks it against `check`
+	public static Verify readBack(WPI_TalonSRX srx, Predicate<TalonSRXConfiguration> check) {
+		return timeoutMs -> {
+			final TalonSRXConfiguration config = new TalonSRXConfiguration();
+			return srx.getAllConfigs(config, timeoutMs) == ErrorCode.OK && check.test(config);
+		};
+	}
+
+	/// Whether a value read back from a device matches what was sent, allowing for fixed-point rounding. Only for settings sent to about a thousandth, like outputs, ramps and limits.
+	public static boolean matches(double actual, double expected) {
+		return Math.abs(actual - expected) < 1e-3;
+	}
+
+	/**
+	 * Whether a closed loop gain read back from a device matches what was sent.
+	 *
+	 * Gains are often well under a thousandth and are stored far more finely than other settings,
+	 * so they are compared relative to their size. The floor covers the Talon's rounding of gains near zero.
+	 */
+	public static boolean gainMatches(double actual, double expected) {
+		return Math.abs(actual - expected) <= Math.max(Math.abs(expected) * 1e-3, 1e-6);
+	}
+}
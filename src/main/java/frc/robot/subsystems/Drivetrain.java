@@ -1,11 +1,10 @@
 package frc.robot.subsystems;
 
-import edu.wpi.first.math.estimator.DifferentialDrivePoseEstimator;
-import edu.wpi.first.math.kinematics.DifferentialDriveOdometry;
 import edu.wpi.first.math.filter.MedianFilter;
 import edu.wpi.first.math.geometry.*;
 import edu.wpi.first.wpilibj.DriverStation;
 import edu.wpi.first.wpilibj.RobotBase;
+import edu.wpi.first.wpilibj.RobotController;
 import edu.wpi.first.wpilibj.Timer;
 import edu.wpi.first.wpilibj.drive.DifferentialDrive;
 import edu.wpi.first.wpilibj.smartdashboard.Field2d;
@@ -15,74 +14,111 @@ import edu.wpi.first.wpilibj2.command.SubsystemBase;
 import frc.robot.FieldConstants;
 import frc.robot.Robot;
 import frc.robot.Constants.*;
-import frc.robot.sim.DrivebaseSimFX;
+import frc.robot.sim.SimClock;
 import frc.robot.subsystems.Transmission.GearState;
 
 import com.ctre.phoenix.motorcontrol.*;
-import com.ctre.phoenix.motorcontrol.can.WPI_TalonFX;
-import com.ctre.phoenix.sensors.WPI_Pigeon2;
+
+import java.util.concurrent.locks.ReentrantLock;
 
 public class Drivetrain extends SubsystemBase {
-	public final WPI_TalonFX rightLeader = new WPI_TalonFX(CANBusIDs.DrivetrainRightBackTalon);
-	public final WPI_TalonFX leftLeader = new WPI_TalonFX(CANBusIDs.DrivetrainLeftBackTalon);
-	public final WPI_TalonFX rightFollower = new WPI_TalonFX(CANBusIDs.DrivetrainRightFrontTalon);
-	public final WPI_TalonFX leftFollower = new WPI_TalonFX(CANBusIDs.DrivetrainLeftFrontTalon);
+	public final DrivetrainIO io;
+
+	// One per VisionConstants.cameras, in the same order
+	private final Limelight[] limelights = Drivetrain.limelights();
+
+  	private final Limelight limelight = this.limelights[Drivetrain.cameraIndex(VisionConstants.topCamera.name)];
+	private final Limelight bottomLimelight = this.limelights[Drivetrain.cameraIndex(VisionConstants.intakeCamera.name)];
 
-  	private final Limelight limelight = new Limelight("limelight-top");
-	private final Limelight bottomLimelight = new Limelight("limelight-intake");
+	// Every camera's AprilTag poses are fused
+	private final VisionThread vision = new VisionThread(this.limelights);
 
 	public final DifferentialDrive diffDrive;
 
 	// TODO: make this work
 	public boolean brakeOverride = false;
 
-	private WPI_Pigeon2 pigeon = new WPI_Pigeon2(CANBusIDs.Pigeon);
+	private final LoopProfiler.Section profile = LoopProfiler.section("Drivetrain");
+
+	public final NeutralModeManager neutralMode;
+
+	// Sensor snapshot, refreshed once at the start of every periodic()
+	private final DrivetrainInputs inputs = new DrivetrainInputs();
 
 	private double offset;
 
 	private MedianFilter filterVertical = new MedianFilter(10);
 	private MedianFilter filterVerticalBottomLimelight = new MedianFilter(5);
 
-	private DifferentialDriveOdometry odometry;
-	private DifferentialDrivePoseEstimator poseEstimator;
+	// Odometry, the pose estimator and vision fusion, shared with the replay tool so both estimate alike
+	private final PoseEstimation estimation;
+
+	// Guards the pose estimation, which the odometry thread updates concurrently
+	private final ReentrantLock odometryLock = new ReentrantLock();
+
+	// Latest poses, replaced wholesale after every update so they can be read without the lock
+	private volatile Pose2d encoderPose = new Pose2d();
+	private volatile Pose2d estimatedPose = new Pose2d();
+
+	// This loop's vision measurements before fusion, and where odometry was last reset to, for the flight recorder
+	private final VisionMeasurement[] loopVision = new VisionMeasurement[FlightRecorderConstants.visionSlots];
+	private int loopVisionCount;
+	private volatile Pose2d resetPose = new Pose2d();
+
+	// Only created when odometry runs faster than the main loop
+	private final OdometryThread odometryThread;
+
+	// Meters of wheel travel per encoder tick and its inverse, indexed by GearState ordinal
+	private static final double[] metersPerTick = new double[GearState.values().length];
+	private static final double[] ticksPerMeter = new double[GearState.values().length];
+
+	static {
+		for(final GearState gear : GearState.values()) {
+			final double ratio = gear == GearState.HIGH ? DrivetrainConstants.highGearRatio : DrivetrainConstants.lowGearRatio;
+
+			Drivetrain.metersPerTick[gear.ordinal()] = DrivetrainConstants.wheelDiameterMeters * Math.PI / (DrivetrainConstants.encoderCPR * ratio);
+			Drivetrain.ticksPerMeter[gear.ordinal()] = 1 / Drivetrain.metersPerTick[gear.ordinal()];
+		}
+	}
+
+	// Pushed by Transmission.onShift, read by the odometry thread as well as the main loop
+	private volatile GearState gearState = GearState.LOW;
+
+	// Bumped by resetEncoders() so every snapshot rebases its distances on its next read
+	private volatile int encoderEpoch;
 
 	private final Field2d field2d = new Field2d();
 	private final Field2d fieldEstimated = new Field2d();
 	private final Field2d fieldLimelight = new Field2d();
-
-	private DrivebaseSimFX driveSim = new DrivebaseSimFX(rightLeader, leftLeader, pigeon);
+	private Pose2d lastLimelightPose;
 
 	// -----------------------------------------------------------
 	// Initialization
 	// -----------------------------------------------------------
-	public Drivetrain() {
-		// Configure Talon motors
-		this.configureMotors();
-
-		this.diffDrive = new DifferentialDrive(rightLeader, leftLeader);
+	public Drivetrain(DrivetrainIO io) {
+		this.io = io;
+		this.neutralMode = new NeutralModeManager(NeutralMode.Brake, io.controllers());
+		this.diffDrive = new DifferentialDrive(io.left(), io.right());
 
 		this.resetEncoders();
 		this.zeroGyro();
 
 		if(DriverStation.getAlliance() == DriverStation.Alliance.Red) {
-			this.pigeon.setYaw(0);
+			this.io.setYaw(0);
 		} else {
-			this.pigeon.setYaw(180);
+			this.io.setYaw(180);
 		}
 
-		// Start with default Pose2d(0, 0, 0)
-		this.odometry = new DifferentialDriveOdometry(
-			new Rotation2d(this.readYaw()),
-			0,
-			0
-		);
-		this.poseEstimator = new DifferentialDrivePoseEstimator(
-			DrivetrainConstants.driveKinematics,
-			new Rotation2d(this.readYaw()),
-			0,
-			0,
-			this.getLimelightPose2d()
-		);
+		this.readInputs();
+
+		// Odometry starts with default Pose2d(0, 0, 0)
+		this.estimation = new PoseEstimation(this.read2dRotation(), this.getLimelightPose2d());
+
+		this.encoderPose = this.estimation.getEncoderPose();
+		this.estimatedPose = this.estimation.getEstimatedPose();
+
+		Telemetry.track("Vision Accepted", this.estimation.getVisionFusion()::getAccepted, Telemetry.Rate.Medium);
+		Telemetry.track("Vision Rejected", this.estimation.getVisionFusion()::getRejected, Telemetry.Rate.Medium);
 
 		this.field2d.setRobotPose(this.getEncoderPose());
 		SmartDashboard.putData("Encoder Pose", this.field2d);
@@ -92,65 +128,107 @@ public class Drivetrain extends SubsystemBase {
 
 		this.fieldLimelight.setRobotPose(this.getLimelightPose2d());
 		SmartDashboard.putData("Limelight Pose", this.fieldLimelight);
+
+		// There is no Limelight in simulation to process frames from
+		if(RobotBase.isReal()) this.vision.start();
+
+		if(DrivetrainConstants.automaticNeutralMode) this.neutralMode.setPolicy(this::automaticNeutralMode);
+		Telemetry.track("Neutral Mode", () -> this.neutralMode.get().name(), Telemetry.Rate.Medium);
+
+		if(DrivetrainConstants.odometryThreadEnabled) {
+			this.odometryThread = new OdometryThread(this, DrivetrainConstants.odometryFrequencyHz);
+			this.odometryThread.start();
+		} else {
+			this.odometryThread = null;
+		}
+	}
+
+	/// Declares the Talon configuration, which RobotContainer applies to every device at once
+	public void configureMotors(DeviceConfigurator configurator) {
+		// The motor config sets its own neutral mode, make sure ours goes out again afterwards
+		this.io.configureMotors(configurator, this.neutralMode::invalidate);
 	}
 
-	public void configureMotors() {
-		// Configure the motors
-		for(WPI_TalonFX fx : new WPI_TalonFX[] { this.rightLeader, this.rightFollower, this.leftLeader, this.leftFollower }) {
-			// Reset settings for safety
-			fx.configFactoryDefault();
-
-			// Sets voltage compensation to 10, used for percent output
-			fx.configVoltageCompSaturation(10);
-			fx.enableVoltageCompensation(true);
-
-			// Setting just in case
-			fx.configNominalOutputForward(0);
-			fx.configNominalOutputReverse(0);
-			fx.configPeakOutputForward(1);
-			fx.configPeakOutputReverse(-1);
-
-			fx.configOpenloopRamp(0.4);
-
-			// Setting deadband(area required to start moving the motor) to 1%
-			fx.configNeutralDeadband(0.01);
-
-			// Set to coast mode, will not brake the motor when no power is sent
-			fx.setNeutralMode(NeutralMode.Brake);
-
-			/**
-			 * Setting input side current limit (amps)
-			 * 45 continious, 80 peak, 30 millieseconds allowed at peak
-			 * 40 amp breaker can support above 40 amps for a little bit
-			 * Falcons have insane acceleration so allowing it to reach 80 for 0.03 seconds
-			 * should be fine
-			 */
-			fx.configSupplyCurrentLimit(new SupplyCurrentLimitConfiguration(true, 40, 55, 20));
-
-			// Either using the integrated Falcon sensor or an external one, will change if
-			// needed
-			fx.configSelectedFeedbackSensor(FeedbackDevice.IntegratedSensor);
-
-			// Set PID values
-			fx.config_kP(0, AutoConstants.GainsAuto.P, 0);
-			fx.config_kI(0, AutoConstants.GainsAuto.I, 0);
-			fx.config_kD(0, AutoConstants.GainsAuto.D, 0);
-			fx.config_kF(0, AutoConstants.GainsAuto.F, 0);
+	/// Declares the status frames the drivetrain reads, which RobotContainer applies to every device at once
+	public void configureStatusFrames(StatusFramePolicy statusFrames) {
+		this.io.configureStatusFrames(statusFrames);
+	}
+
+	/**
+	 * Declares what the flight recorder should capture from the drivetrain and its Limelights every loop.
+	 *
+	 * Everything the pose estimation consumes is recorded at full precision, so `frc.robot.sim.Replay`
+	 * can run it again offline: the sensor snapshot, every vision measurement before fusion, and
+	 * odometry resets (the encoder epoch and the pose it was reset to).
+	 */
+	public void configureRecorder(FlightRecorder recorder) {
+		final DrivetrainInputs inputs = this.inputs;
+
+		recorder
+			.precise("Drivetrain/Input Time", () -> inputs.timestamp)
+			.column("Drivetrain/Gear", () -> inputs.gearState.ordinal())
+			.precise("Drivetrain/Left Position Ticks", () -> inputs.leftPositionTicks)
+			.precise("Drivetrain/Right Position Ticks", () -> inputs.rightPositionTicks)
+			.column("Drivetrain/Left Velocity Ticks", () -> inputs.leftVelocityTicks)
+			.column("Drivetrain/Right Velocity Ticks", () -> inputs.rightVelocityTicks)
+			.precise("Drivetrain/Left Distance", () -> inputs.leftDistanceMeters)
+			.precise("Drivetrain/Right Distance", () -> inputs.rightDistanceMeters)
+			.precise("Drivetrain/Yaw", () -> inputs.yawDegrees)
+			.column("Drivetrain/Pitch", () -> inputs.pitchDegrees)
+			.column("Drivetrain/Roll", () -> inputs.rollDegrees)
+			.column("Drivetrain/Left Output", this.io::getLeftOutput)
+			.column("Drivetrain/Right Output", this.io::getRightOutput)
+			.flag("Drivetrain/Brake", () -> this.neutralMode.get() == NeutralMode.Brake)
+			.column("Drivetrain/Estimated X", () -> this.estimatedPose.getX())
+			.column("Drivetrain/Estimated Y", () -> this.estimatedPose.getY())
+			.column("Drivetrain/Estimated Heading", () -> this.estimatedPose.getRotation().getDegrees())
+			.column("Drivetrain/Epoch", () -> this.encoderEpoch)
+			.precise("Drivetrain/Reset X", () -> this.resetPose.getX())
+			.precise("Drivetrain/Reset Y", () -> this.resetPose.getY())
+			.precise("Drivetrain/Reset Heading", () -> this.resetPose.getRotation().getDegrees())
+			.column("Vision/Count", () -> this.loopVisionCount);
+
+		// Slots past this loop's count hold whatever an earlier loop left there, replay ignores them
+		for(int i = 0; i < this.loopVision.length; i++) {
+			final int slot = i;
+			final String prefix = "Vision/" + slot + "/";
+
+			recorder
+				.column(prefix + "Camera", () -> this.loopVision[slot] == null ? -1 : Drivetrain.cameraIndex(this.loopVision[slot].camera))
+				.precise(prefix + "Time", () -> this.loopVision[slot] == null ? 0 : this.loopVision[slot].timestamp)
+				.precise(prefix + "X", () -> this.loopVision[slot] == null ? 0 : this.loopVision[slot].pose.getX())
+				.precise(prefix + "Y", () -> this.loopVision[slot] == null ? 0 : this.loopVision[slot].pose.getY())
+				.precise(prefix + "Heading", () -> this.loopVision[slot] == null ? 0 : this.loopVision[slot].pose.getRotation().getDegrees())
+				.column(prefix + "Tags", () -> this.loopVision[slot] == null ? 0 : this.loopVision[slot].tagCount)
+				.column(prefix + "Distance", () -> this.loopVision[slot] == null ? 0 : this.loopVision[slot].averageTagDistance);
 		}
 
-		// New Talon FX inverts. Would replace InvertType.InvertMotorOutput
-		// this.leftLeader.setInverted(TalonFXInvertType.CounterClockwise);
-		// this.rightLeader.setInverted(TalonFXInvertType.Clockwise);
+		for(final Limelight limelight : this.limelights) {
+			final String prefix = "Limelight/" + limelight.getName() + "/";
 
-		// Setting followers, followers don't automatically follow the Leader's inverts
-		// so you must set the invert type to Follow the Leader
-		this.rightFollower.setInverted(InvertType.FollowMaster);
-		this.leftFollower.setInverted(InvertType.FollowMaster);
+			recorder
+				.flag(prefix + "Has Target", limelight::hasValidTargets)
+				.column(prefix + "Tag", limelight::getTargetAprilTagID)
+				.column(prefix + "X Offset", limelight::getTargetHorizontalOffset)
+				.column(prefix + "Y Offset", limelight::getTargetVerticalOffset)
+				.column(prefix + "Area", limelight::getTargetArea);
+		}
+	}
+
+	private static Limelight[] limelights() {
+		final Limelight[] limelights = new Limelight[VisionConstants.cameras.length];
+		for(int i = 0; i < limelights.length; i++) limelights[i] = new Limelight(VisionConstants.cameras[i]);
+
+		return limelights;
+	}
 
-		this.rightFollower.follow(this.rightLeader, FollowerType.PercentOutput);
-		this.leftFollower.follow(this.leftLeader, FollowerType.PercentOutput);
+	/// Position of the named camera in VisionConstants.cameras, or -1
+	private static int cameraIndex(String name) {
+		for(int i = 0; i < VisionConstants.cameras.length; i++) {
+			if(VisionConstants.cameras[i].name.equals(name)) return i;
+		}
 
-		this.leftLeader.setInverted(InvertType.InvertMotorOutput);
+		return -1;
 	}
 
 	// -----------------------------------------------------------
@@ -161,26 +239,40 @@ public class Drivetrain extends SubsystemBase {
 	}
 
 	public void tankDriveVolts(double leftVolts, double rightVolts) {
-		this.rightLeader.set(ControlMode.PercentOutput, leftVolts / 12);
-		this.leftLeader.set(ControlMode.PercentOutput, rightVolts / 12);
+		this.io.left().set(leftVolts / 12);
+		this.io.right().set(rightVolts / 12);
 
 		// Feed motor safety to assert that we're in control
 		this.diffDrive.feed();
 	}
 
 	public void zeroGyro() {
-		this.pigeon.setYaw(0);
-		this.pigeon.reset();
+		this.io.zeroGyro();
 	}
 
+	/**
+	 * Zeroes the wheel distances. This is done in software rather than on the Talons, since a
+	 * hardware reset lands some time after the call and would show up as one large tick delta.
+	 */
 	public void resetEncoders() {
-		this.rightLeader.setSelectedSensorPosition(0);
-		this.leftLeader.setSelectedSensorPosition(0);
+		this.encoderEpoch++;
+
+		// Keep the snapshot coherent until the next readInputs() sees the reset
+		this.inputs.leftDistanceMeters = 0;
+		this.inputs.rightDistanceMeters = 0;
 	}
 
 	public void resetOdometry(Pose2d pose) {
 		this.resetEncoders();
-		this.odometry.resetPosition(this.read2dRotation(), 0, 0, pose);
+
+		this.odometryLock.lock();
+		try {
+			this.estimation.resetOdometry(this.read2dRotation(), pose);
+			this.encoderPose = this.estimation.getEncoderPose();
+			this.resetPose = pose;
+		} finally {
+			this.odometryLock.unlock();
+		}
 	}
 
 //
@@ -193,21 +285,18 @@ public class Drivetrain extends SubsystemBase {
 		double leftVelocityTicksPerSec = metersToEncoderTicks(leftMetersPerSecond);
 		double rightVelocityTicksPerSec = metersToEncoderTicks(rightMetersPerSecond);
 
-		this.rightLeader.set(ControlMode.Velocity,
+		this.io.setVelocity(
 				leftVelocityTicksPerSec / 10.0,
-				DemandType.ArbitraryFeedForward,
-				leftFeedForward / AutoConstants.maxVolts);
-		this.leftLeader.set(ControlMode.Velocity,
+				leftFeedForward / AutoConstants.maxVolts,
 				rightVelocityTicksPerSec / 10.0,
-				DemandType.ArbitraryFeedForward,
 				rightFeedForward / AutoConstants.maxVolts);
 
 		this.diffDrive.feed();
 	}
 
 	public void turnPower(double power) {
-		leftLeader.setVoltage(power);
-		rightLeader.setVoltage(-power);
+		this.io.right().setVoltage(power);
+		this.io.left().setVoltage(-power);
 	}
 
 	// public void setSpeedMultiplier(double multiplier){
@@ -218,18 +307,73 @@ public class Drivetrain extends SubsystemBase {
 	// 	speedMultiplierOn = multiplierOn;
 	// }
 
+	// Only sends CAN frames when the mode actually changes, so these are safe to call every loop
 	public void setCoastMode(){
-		this.rightLeader.setNeutralMode(NeutralMode.Coast);
-		this.leftLeader.setNeutralMode(NeutralMode.Coast);
-		this.rightFollower.setNeutralMode(NeutralMode.Coast);
-		this.leftFollower.setNeutralMode(NeutralMode.Coast);
+		this.neutralMode.set(NeutralMode.Coast);
 	}
 
 	public void setBrakeMode(){
-		this.rightLeader.setNeutralMode(NeutralMode.Brake);
-		this.leftLeader.setNeutralMode(NeutralMode.Brake);
-		this.rightFollower.setNeutralMode(NeutralMode.Brake);
-		this.leftFollower.setNeutralMode(NeutralMode.Brake);
+		this.neutralMode.set(NeutralMode.Brake);
+	}
+
+	/// Brake in auto, when overridden, or while the driver is creeping with the reduct trigger
+	public NeutralMode automaticNeutralMode() {
+		return Robot.instance.isAutonomousEnabled() || this.brakeOverride || Robot.instance.robotContainer.driverOI.getReductFactor() < 0.4
+			? NeutralMode.Brake
+			: NeutralMode.Coast;
+	}
+
+	// -----------------------------------------------------------
+	// Sensor Input
+	// -----------------------------------------------------------
+
+	/**
+	 * Reads every drivetrain sensor exactly once into the snapshot.
+	 * Everything else in this class, and the commands using it, read from the
+	 * snapshot instead of going back out to the CAN bus.
+	 */
+	public void readInputs() {
+		this.readInputs(this.inputs);
+	}
+
+	/// Reads every drivetrain sensor into `inputs`. Safe to call from any thread with its own snapshot.
+	void readInputs(DrivetrainInputs inputs) {
+		inputs.timestamp = Timer.getFPGATimestamp();
+
+		inputs.gearState = this.gearState;
+
+		final double lastLeftTicks = inputs.leftPositionTicks;
+		final double lastRightTicks = inputs.rightPositionTicks;
+		this.io.readSensors(inputs);
+
+		// The encoders are on the motor side of the gearbox, so scaling the total tick count by the
+		// current ratio would rescale everything driven before a shift. Instead only the travel since
+		// the last sample is converted, in the gear that was engaged when it was sampled.
+		final int epoch = this.encoderEpoch;
+		if(inputs.encoderEpoch != epoch) {
+			inputs.encoderEpoch = epoch;
+			inputs.leftDistanceMeters = 0;
+			inputs.rightDistanceMeters = 0;
+		} else {
+			final double metersPerTick = Drivetrain.metersPerTick[inputs.gearState.ordinal()];
+
+			inputs.leftDistanceMeters += (inputs.leftPositionTicks - lastLeftTicks) * metersPerTick;
+			inputs.rightDistanceMeters += (inputs.rightPositionTicks - lastRightTicks) * metersPerTick;
+		}
+
+		inputs.yawPitchRoll[0] = inputs.yawDegrees;
+		inputs.yawPitchRoll[1] = inputs.pitchDegrees;
+		inputs.yawPitchRoll[2] = inputs.rollDegrees;
+		inputs.yaw = Rotation2d.fromDegrees(inputs.yawDegrees);
+	}
+
+	public DrivetrainInputs getInputs() {
+		return this.inputs;
+	}
+
+	/// Estimated pose and wheel distances from every past loop, for latency compensation and replay
+	public PoseHistory getPoseHistory() {
+		return this.estimation.getPoseHistory();
 	}
 
 	// -----------------------------------------------------------
@@ -247,27 +391,34 @@ public class Drivetrain extends SubsystemBase {
 		return DrivetrainConstants.wheelDiameterMeters * Math.PI * wheelRotations;
 	}
 
-	// Encoder ticks to meters
+	// Encoder ticks to meters, in the current gear
 	public double encoderTicksToMeters(double encoderTicks) {
-		return this.wheelRotationsToMeters(this.motorRotationsToWheelRotations(encoderTicks, Robot.instance.robotContainer.transmission.getGearState()));
+		return encoderTicks * Drivetrain.metersPerTick[this.gearState.ordinal()];
+	}
+
+	public void setGearState(GearState gearState) {
+		this.gearState = gearState;
+	}
+
+	public GearState getGearState() {
+		return this.gearState;
 	}
 
 	public double getLeftDistanceMeters() {
-		return this.encoderTicksToMeters(this.rightLeader.getSelectedSensorPosition());
+		return this.inputs.leftDistanceMeters;
 	}
 
 	public double getRightDistanceMeters() {
-		return this.encoderTicksToMeters(this.leftLeader.getSelectedSensorPosition());
+		return this.inputs.rightDistanceMeters;
 	}
 
 	public double getAvgDistanceMeters() {
-		return (this.getLeftDistanceMeters() + this.getRightDistanceMeters()) / 2;
+		return this.inputs.getAvgDistanceMeters();
 	}
 
+	/// Yaw, pitch and roll from the latest snapshot. Do not modify the returned array.
 	public double[] readGyro() {
-		double[] angle = new double[3];
-		this.pigeon.getYawPitchRoll(angle);
-		return angle;
+		return this.inputs.yawPitchRoll;
 	}
 
 	/**
@@ -275,7 +426,7 @@ public class Drivetrain extends SubsystemBase {
 	 * @return pose from encoders
 	 */
 	public Pose2d getEncoderPose() {
-		return this.odometry.getPoseMeters();
+		return this.encoderPose;
 	}
 
 	/**
@@ -285,7 +436,7 @@ public class Drivetrain extends SubsystemBase {
 	 */
 	public Pose2d getEstimatedPose() {
 		if(RobotBase.isReal()) {
-			return this.poseEstimator.getEstimatedPosition();
+			return this.estimatedPose;
 		} else if(Timer.getFPGATimestamp() > 0.5) {
 			return new Pose2d(5.0,4.0, new Rotation2d(3.1));
 		}
@@ -295,31 +446,31 @@ public class Drivetrain extends SubsystemBase {
 	}
 
 	public Rotation2d readYawRot() {
-		return Rotation2d.fromDegrees(this.readYaw());
+		return this.inputs.yaw;
 	}
 
 	public double readYaw() {
-		return this.readGyro()[0];
+		return this.inputs.yawDegrees;
 	}
 
 	public double readPitch() {
-		return -this.readGyro()[1];
+		return -this.inputs.pitchDegrees;
 	}
 
 	public double readRoll() {
-		return -this.readGyro()[2];
+		return -this.inputs.rollDegrees;
 	}
 
 	public Rotation2d read2dRotation() {
-		return Rotation2d.fromDegrees(this.readYaw());
+		return this.inputs.yaw;
 	}
 
 	public Pose2d getPose() {
-		return this.odometry.getPoseMeters();
+		return this.encoderPose;
 	}
 
 	public double getMotorOutput() {
-		return this.leftLeader.getMotorOutputVoltage();
+		return this.io.getRightOutput() * RobotController.getBatteryVoltage();
 	}
 
 	public double metersToWheelRotations(double metersPerSecond) {
@@ -333,19 +484,13 @@ public class Drivetrain extends SubsystemBase {
 		return wheelRotations * DrivetrainConstants.encoderCPR * DrivetrainConstants.lowGearRatio;
 	}
 
+	// Meters to encoder ticks, in the current gear
 	public double metersToEncoderTicks(double metersPerSecond) {
-		GearState gearState = Robot.instance.robotContainer.transmission.getGearState();
-
-		double encoderTicks = this.wheelRotationsToEncoderTicks(
-			this.metersToWheelRotations(metersPerSecond),
-			gearState
-		);
-		
-		return encoderTicks;
+		return metersPerSecond * Drivetrain.ticksPerMeter[this.gearState.ordinal()];
 	}
 
 	public double getHeading() {
-		return this.pigeon.getYaw();
+		return this.inputs.yawDegrees;
 	}
 
 	// Robot transform in 3D field-space. Translation (X,Y,Z) Rotation(X,Y,Z)
@@ -452,27 +597,70 @@ public class Drivetrain extends SubsystemBase {
 		// 	  odometry.update(readYawRot(), getLeftDistanceMeters(), getRightDistanceMeters());
 		// }
 
-		this.odometry.update(this.readYawRot(), this.getLeftDistanceMeters(), this.getRightDistanceMeters());
-		this.poseEstimator.update(this.readYawRot(), this.getLeftDistanceMeters(), this.getRightDistanceMeters());
-		if(this.limelight.hasValidTargets()) {
-			this.poseEstimator.addVisionMeasurement(this.getLimelightPose2d(), Timer.getFPGATimestamp() - 0.3);
-		}
+		this.profile.start();
 
-		// NeutralMode neutralMode = (Robot.instance.isAutonomousEnabled() || this.brakeOverride || Robot.instance.robotContainer.driverOI.getReductFactor() < 0.4) ? NeutralMode.Brake : NeutralMode.Coast;
+		this.readInputs();
+		this.loopVisionCount = 0;
 
-		// SmartDashboard.putString("Neutral Mode", neutralMode.name());
+		// Otherwise the odometry thread is already integrating at a higher rate
+		if(this.odometryThread == null) this.updateOdometry(this.inputs);
+		// Fuse everything every camera produced since the last loop in one batch
+		this.odometryLock.lock();
+		try {
+			for(VisionMeasurement measurement = this.pollVision(); measurement != null; measurement = this.pollVision()) {
+				this.estimation.addVision(measurement);
 
-		// for(WPI_TalonFX fx : new WPI_TalonFX[] { this.leftLeader, this.leftFollower, this.rightLeader, this.rightFollower }) {
-		// 	fx.setNeutralMode(neutralMode);
-		// }
+				if(this.loopVisionCount < this.loopVision.length) this.loopVision[this.loopVisionCount] = measurement;
+				this.loopVisionCount++;
+			}
+			this.estimation.fuseVision();
+			this.estimatedPose = this.estimation.getEstimatedPose();
+		} finally {
+			this.odometryLock.unlock();
+		}
+
+		// Evaluates automaticNeutralMode() when enabled, and resends after a Talon was reconfigured
+		this.neutralMode.update();
 
 		this.publishTelemetry();
+
+		this.profile.stop();
+	}
+
+	/**
+	 * Integrates a sensor snapshot into odometry, the pose estimator and the pose history.
+	 * Called from periodic(), or from the odometry thread when it is enabled.
+	 */
+	void updateOdometry(DrivetrainInputs inputs) {
+		this.odometryLock.lock();
+		try {
+			// An encoder reset landed after this snapshot was read, its distances are from before resetOdometry()
+			if(inputs.encoderEpoch != this.encoderEpoch) return;
+
+			this.estimation.update(inputs.timestamp, inputs.yaw, inputs.leftDistanceMeters, inputs.rightDistanceMeters);
+			this.encoderPose = this.estimation.getEncoderPose();
+			this.estimatedPose = this.estimation.getEstimatedPose();
+		} finally {
+			this.odometryLock.unlock();
+		}
+	}
+
+	/// The next measurement from the Limelights, or from the IO once they have none
+	private VisionMeasurement pollVision() {
+		final VisionMeasurement measurement = this.vision.poll();
+		return measurement != null ? measurement : this.io.pollVision();
 	}
 
 	public void publishTelemetry() {
 		this.field2d.setRobotPose(this.getEncoderPose());
 		this.fieldEstimated.setRobotPose(this.getEstimatedPose());
-		this.fieldLimelight.setRobotPose(this.getLimelightPoseRelative());
+
+		// Limelight poses are cached until a new frame arrives, so skip republishing the same one
+		final Pose2d limelightPose = this.getLimelightPoseRelative();
+		if(limelightPose != this.lastLimelightPose) {
+			this.fieldLimelight.setRobotPose(limelightPose);
+			this.lastLimelightPose = limelightPose;
+		}
 	}
 
 	public void simulationInit() {
@@ -483,7 +671,7 @@ public class Drivetrain extends SubsystemBase {
 	@Override
 	public void simulationPeriodic() {
 		// PhysicsSim.getInstance().run();
-		this.driveSim.run();
+		this.io.simulate(SimClock.dt());
 	}
 
 	public boolean getHasValidTargetsSim() {
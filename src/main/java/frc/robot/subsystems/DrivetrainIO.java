@@ -0,0 +1,418 @@
+package frc.robot.subsystems;
+
+import com.ctre.phoenix.motorcontrol.ControlMode;
+import com.ctre.phoenix.motorcontrol.DemandType;
+import com.ctre.phoenix.motorcontrol.FollowerType;
+import com.ctre.phoenix.motorcontrol.InvertType;
+import com.ctre.phoenix.motorcontrol.StatusFrameEnhanced;
+import com.ctre.phoenix.motorcontrol.can.BaseMotorController;
+import com.ctre.phoenix.motorcontrol.can.TalonFX;
+import com.ctre.phoenix.motorcontrol.can.WPI_TalonFX;
+import com.ctre.phoenix.sensors.PigeonIMU_StatusFrame;
+import com.ctre.phoenix.sensors.WPI_Pigeon2;
+
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.wpilibj.motorcontrol.MotorController;
+import frc.robot.Constants.CANBusIDs;
+import frc.robot.Constants.DrivetrainConstants;
+import frc.robot.Constants.FlightRecorderConstants;
+import frc.robot.Constants.StatusFrameConstants;
+import frc.robot.Constants.VisionConstants;
+import frc.robot.sim.DrivebaseSimFX;
+import frc.robot.sim.SimMotor;
+import frc.robot.subsystems.Transmission.GearState;
+
+/**
+ * Everything {@link Drivetrain} needs from its motors and gyro, in terms of the sides of the
+ * robot rather than of particular controllers.
+ *
+ * Positive output drives that side forward, and both encoders count up going forward.
+ */
+public interface DrivetrainIO {
+	/**
+	 * Reads the raw encoder ticks, tick velocities and gyro angles into `inputs`, leaving the
+	 * derived fields alone. The timestamp and gear are already set, but may be replaced with the
+	 * time and gear the values were really sampled in.
+	 */
+	void readSensors(DrivetrainInputs inputs);
+
+	/// Sets the gyro yaw, in degrees
+	void setYaw(double degrees);
+
+	/// Zeroes the gyro yaw and restarts its fusion
+	default void zeroGyro() {
+		this.setYaw(0);
+	}
+
+	/// The next vision measurement this IO supplies itself rather than the Limelights, or null
+	default VisionMeasurement pollVision() {
+		return null;
+	}
+
+	/// Controllers for the left and right sides of the robot, for `DifferentialDrive` and percent output
+	MotorController left();
+	MotorController right();
+
+	/// Closed loop velocity per side, in ticks per 100ms, with feedforward as a fraction of full output
+	void setVelocity(double leftTicksPer100ms, double leftFeedForward, double rightTicksPer100ms, double rightFeedForward);
+
+	/// Applied output per side, as a fraction of full output
+	double getLeftOutput();
+	double getRightOutput();
+
+	/// Controllers the neutral mode should be sent to, none when there is no hardware
+	default BaseMotorController[] controllers() {
+		return new BaseMotorController[0];
+	}
+
+	/// Talons that can play music through an `Orchestra`, none when there is no hardware
+	default TalonFX[] instruments() {
+		return new TalonFX[0];
+	}
+
+	/// @param reconfigured run after each controller is configured, which resets its neutral mode
+	default void configureMotors(DeviceConfigurator configurator, Runnable reconfigured) {}
+
+	default void configureStatusFrames(StatusFramePolicy statusFrames) {}
+
+	/// Advances any simulated physics by `dtSeconds`
+	default void simulate(double dtSeconds) {}
+
+	/** The drivetrain Talons and Pigeon */
+	public static final class Real implements DrivetrainIO {
+		// The right back Talon drives the left side of the robot, and the left back Talon the right side
+		public final WPI_TalonFX rightLeader = new WPI_TalonFX(CANBusIDs.DrivetrainRightBackTalon);
+		public final WPI_TalonFX leftLeader = new WPI_TalonFX(CANBusIDs.DrivetrainLeftBackTalon);
+		public final WPI_TalonFX rightFollower = new WPI_TalonFX(CANBusIDs.DrivetrainRightFrontTalon);
+		public final WPI_TalonFX leftFollower = new WPI_TalonFX(CANBusIDs.DrivetrainLeftFrontTalon);
+
+		public final WPI_Pigeon2 pigeon = new WPI_Pigeon2(CANBusIDs.Pigeon);
+
+		@Override
+		public void readSensors(DrivetrainInputs inputs) {
+			inputs.leftPositionTicks = this.rightLeader.getSelectedSensorPosition();
+			inputs.rightPositionTicks = this.leftLeader.getSelectedSensorPosition();
+			inputs.leftVelocityTicks = this.rightLeader.getSelectedSensorVelocity();
+			inputs.rightVelocityTicks = this.leftLeader.getSelectedSensorVelocity();
+
+			this.pigeon.getYawPitchRoll(inputs.yawPitchRoll);
+			inputs.yawDegrees = inputs.yawPitchRoll[0];
+			inputs.pitchDegrees = inputs.yawPitchRoll[1];
+			inputs.rollDegrees = inputs.yawPitchRoll[2];
+		}
+
+		@Override
+		public void setYaw(double degrees) {
+			this.pigeon.setYaw(degrees);
+		}
+
+		@Override
+		public void zeroGyro() {
+			this.pigeon.setYaw(0);
+			this.pigeon.reset();
+		}
+
+		@Override
+		public MotorController left() {
+			return this.rightLeader;
+		}
+
+		@Override
+		public MotorController right() {
+			return this.leftLeader;
+		}
+
+		@Override
+		public void setVelocity(double leftTicksPer100ms, double leftFeedForward, double rightTicksPer100ms, double rightFeedForward) {
+			this.rightLeader.set(ControlMode.Velocity, leftTicksPer100ms, DemandType.ArbitraryFeedForward, leftFeedForward);
+			this.leftLeader.set(ControlMode.Velocity, rightTicksPer100ms, DemandType.ArbitraryFeedForward, rightFeedForward);
+		}
+
+		@Override
+		public double getLeftOutput() {
+			return this.rightLeader.getMotorOutputPercent();
+		}
+
+		@Override
+		public double getRightOutput() {
+			return this.leftLeader.getMotorOutputPercent();
+		}
+
+		@Override
+		public BaseMotorController[] controllers() {
+			return new BaseMotorController[] { this.rightLeader, this.leftLeader, this.rightFollower, this.leftFollower };
+		}
+
+		@Override
+		public TalonFX[] instruments() {
+			return new TalonFX[] { this.rightLeader, this.leftLeader, this.rightFollower, this.leftFollower };
+		}
+
+		@Override
+		public void configureMotors(DeviceConfigurator configurator, Runnable reconfigured) {
+			for(WPI_TalonFX fx : new WPI_TalonFX[] { this.rightLeader, this.rightFollower, this.leftLeader, this.leftFollower }) {
+				final DeviceConfigurator.Batch batch = configurator.device("Drivetrain " + fx.getDeviceID())
+					.motor(fx, DrivetrainConstants.motorConfig)
+					.then("Neutral Mode", reconfigured)
+					.reapplyOnReset(fx);
+
+				// New Talon FX inverts. Would replace InvertType.InvertMotorOutput
+				// this.leftLeader.setInverted(TalonFXInvertType.CounterClockwise);
+				// this.rightLeader.setInverted(TalonFXInvertType.Clockwise);
+
+				// Setting followers, followers don't automatically follow the Leader's inverts
+				// so you must set the invert type to Follow the Leader
+				if(fx == this.rightFollower) {
+					batch.then("Invert", () -> this.rightFollower.setInverted(InvertType.FollowMaster));
+					batch.then("Follow", () -> this.rightFollower.follow(this.rightLeader, FollowerType.PercentOutput));
+				} else if(fx == this.leftFollower) {
+					batch.then("Invert", () -> this.leftFollower.setInverted(InvertType.FollowMaster));
+					batch.then("Follow", () -> this.leftFollower.follow(this.leftLeader, FollowerType.PercentOutput));
+				} else if(fx == this.leftLeader) {
+					batch.then("Invert", () -> this.leftLeader.setInverted(InvertType.InvertMotorOutput));
+				}
+			}
+
+			// Nothing to configure, but its status frame periods are lost when it resets
+			configurator.device("Pigeon").reapplyOnReset(this.pigeon);
+		}
+
+		@Override
+		public void configureStatusFrames(StatusFramePolicy statusFrames) {
+			// Odometry can only sample as fast as the encoders and gyro report
+			final int odometry = DrivetrainConstants.odometryThreadEnabled
+				? (int)(1000 / DrivetrainConstants.odometryFrequencyHz)
+				: StatusFrameConstants.fast;
+
+			// Leaders: position and velocity feed odometry, general carries applied output
+			for(final WPI_TalonFX talon : new WPI_TalonFX[] { this.leftLeader, this.rightLeader }) {
+				statusFrames.talon("Drivetrain Leader " + talon.getDeviceID(), talon)
+					.frame(StatusFrameEnhanced.Status_1_General, StatusFrameConstants.fast)
+					.frame(StatusFrameEnhanced.Status_2_Feedback0, odometry)
+					.frame(StatusFrameEnhanced.Status_2_Feedback0, StatusFramePolicy.Mode.Disabled, StatusFrameConstants.normal)
+					.frame(StatusFrameEnhanced.Status_4_AinTempVbat, StatusFrameConstants.slow)
+					.frame(StatusFrameEnhanced.Status_10_Targets, StatusFrameConstants.off)
+					.frame(StatusFrameEnhanced.Status_12_Feedback1, StatusFrameConstants.off)
+					.frame(StatusFrameEnhanced.Status_13_Base_PIDF0, StatusFrameConstants.off)
+					.frame(StatusFrameEnhanced.Status_14_Turn_PIDF1, StatusFrameConstants.off)
+					.frame(StatusFrameEnhanced.Status_Brushless_Current, StatusFrameConstants.slow);
+			}
+
+			// Followers mirror their leader, nothing reads them back
+			for(final WPI_TalonFX talon : new WPI_TalonFX[] { this.leftFollower, this.rightFollower }) {
+				statusFrames.follower("Follower " + talon.getDeviceID(), talon);
+			}
+
+			statusFrames.pigeon("Pigeon", this.pigeon)
+				.frame(PigeonIMU_StatusFrame.CondStatus_9_SixDeg_YPR, odometry)
+				.frame(PigeonIMU_StatusFrame.CondStatus_9_SixDeg_YPR, StatusFramePolicy.Mode.Disabled, StatusFrameConstants.normal)
+				.frame(PigeonIMU_StatusFrame.CondStatus_1_General, StatusFrameConstants.slow)
+				.frame(PigeonIMU_StatusFrame.CondStatus_2_GeneralCompass, StatusFrameConstants.off)
+				.frame(PigeonIMU_StatusFrame.CondStatus_3_GeneralAccel, StatusFrameConstants.off)
+				.frame(PigeonIMU_StatusFrame.CondStatus_6_SensorFusion, StatusFrameConstants.off)
+				.frame(PigeonIMU_StatusFrame.CondStatus_10_SixDeg_Quat, StatusFrameConstants.off)
+				.frame(PigeonIMU_StatusFrame.CondStatus_11_GyroAccum, StatusFrameConstants.off)
+				.frame(PigeonIMU_StatusFrame.BiasedStatus_2_Gyro, StatusFrameConstants.off)
+				.frame(PigeonIMU_StatusFrame.BiasedStatus_4_Mag, StatusFrameConstants.off)
+				.frame(PigeonIMU_StatusFrame.BiasedStatus_6_Accel, StatusFrameConstants.off);
+		}
+	}
+
+	/** A drivetrain physics model that only moves when it is stepped */
+	public static final class Sim implements DrivetrainIO {
+		private final DrivebaseSimFX model;
+		private final SimMotor left = new SimMotor();
+		private final SimMotor right = new SimMotor();
+
+		// Added to the model heading, so setYaw() does not have to move the model
+		private double yawOffset;
+
+		public Sim() {
+			this(new DrivebaseSimFX());
+		}
+
+		public Sim(DrivebaseSimFX model) {
+			this.model = model;
+		}
+
+		public DrivebaseSimFX getModel() {
+			return this.model;
+		}
+
+		@Override
+		public void readSensors(DrivetrainInputs inputs) {
+			inputs.leftPositionTicks = this.model.getLeftPositionTicks();
+			inputs.rightPositionTicks = this.model.getRightPositionTicks();
+			inputs.leftVelocityTicks = this.model.getLeftVelocityTicks();
+			inputs.rightVelocityTicks = this.model.getRightVelocityTicks();
+
+			inputs.yawDegrees = this.model.getHeadingDegrees() + this.yawOffset;
+			inputs.pitchDegrees = 0;
+			inputs.rollDegrees = 0;
+		}
+
+		@Override
+		public void setYaw(double degrees) {
+			this.yawOffset = degrees - this.model.getHeadingDegrees();
+		}
+
+		@Override
+		public MotorController left() {
+			return this.left;
+		}
+
+		@Override
+		public MotorController right() {
+			return this.right;
+		}
+
+		/// There is no closed loop in the model, the feedforward alone is applied
+		@Override
+		public void setVelocity(double leftTicksPer100ms, double leftFeedForward, double rightTicksPer100ms, double rightFeedForward) {
+			this.left.set(leftFeedForward);
+			this.right.set(rightFeedForward);
+		}
+
+		@Override
+		public double getLeftOutput() {
+			return this.left.get();
+		}
+
+		@Override
+		public double getRightOutput() {
+			return this.right.get();
+		}
+
+		@Override
+		public void simulate(double dtSeconds) {
+			this.model.setInputs(this.getLeftOutput() * DrivebaseSimFX.nominalVoltage, this.getRightOutput() * DrivebaseSimFX.nominalVoltage);
+			this.model.run(dtSeconds);
+		}
+	}
+
+	/**
+	 * Sensor values and vision measurements from a flight recording, one recorded loop per robot
+	 * loop. Outputs go nowhere.
+	 */
+	public static final class Replay implements DrivetrainIO {
+		private final FlightLog.Cursor cursor;
+		private final int time, gear, leftPosition, rightPosition, leftVelocity, rightVelocity, yaw, pitch, roll;
+
+		// Recorded vision measurements, one column per slot and field
+		private final int visionCount;
+		private final int[] camera, visionTime, x, y, heading, tags, distance;
+
+		// Row and slot of the next measurement pollVision() hands out
+		private int visionRow = -1;
+		private int visionSlot;
+
+		private final SimMotor left = new SimMotor();
+		private final SimMotor right = new SimMotor();
+
+		public Replay(FlightLog.Cursor cursor) {
+			this.cursor = cursor;
+
+			final FlightLog log = cursor.log();
+			this.time = log.require("Drivetrain/Input Time");
+			this.gear = log.require("Drivetrain/Gear");
+			this.leftPosition = log.require("Drivetrain/Left Position Ticks");
+			this.rightPosition = log.require("Drivetrain/Right Position Ticks");
+			this.leftVelocity = log.require("Drivetrain/Left Velocity Ticks");
+			this.rightVelocity = log.require("Drivetrain/Right Velocity Ticks");
+			this.yaw = log.require("Drivetrain/Yaw");
+			this.pitch = log.require("Drivetrain/Pitch");
+			this.roll = log.require("Drivetrain/Roll");
+
+			this.visionCount = log.require("Vision/Count");
+			this.camera = new int[FlightRecorderConstants.visionSlots];
+			this.visionTime = new int[FlightRecorderConstants.visionSlots];
+			this.x = new int[FlightRecorderConstants.visionSlots];
+			this.y = new int[FlightRecorderConstants.visionSlots];
+			this.heading = new int[FlightRecorderConstants.visionSlots];
+			this.tags = new int[FlightRecorderConstants.visionSlots];
+			this.distance = new int[FlightRecorderConstants.visionSlots];
+			for(int slot = 0; slot < FlightRecorderConstants.visionSlots; slot++) {
+				final String prefix = "Vision/" + slot + "/";
+
+				this.camera[slot] = log.require(prefix + "Camera");
+				this.visionTime[slot] = log.require(prefix + "Time");
+				this.x[slot] = log.require(prefix + "X");
+				this.y[slot] = log.require(prefix + "Y");
+				this.heading[slot] = log.require(prefix + "Heading");
+				this.tags[slot] = log.require(prefix + "Tags");
+				this.distance[slot] = log.require(prefix + "Distance");
+			}
+		}
+
+		@Override
+		public void readSensors(DrivetrainInputs inputs) {
+			// Vision capture times are recorded on the robot's clock, so the snapshot has to be too
+			inputs.timestamp = this.cursor.get(this.time);
+			// Driver inputs are not replayed, so the transmission here may not shift when the robot did
+			inputs.gearState = GearState.values()[(int)this.cursor.get(this.gear)];
+
+			inputs.leftPositionTicks = this.cursor.get(this.leftPosition);
+			inputs.rightPositionTicks = this.cursor.get(this.rightPosition);
+			inputs.leftVelocityTicks = this.cursor.get(this.leftVelocity);
+			inputs.rightVelocityTicks = this.cursor.get(this.rightVelocity);
+
+			inputs.yawDegrees = this.cursor.get(this.yaw);
+			inputs.pitchDegrees = this.cursor.get(this.pitch);
+			inputs.rollDegrees = this.cursor.get(this.roll);
+		}
+
+		/// The recorded yaw already includes whatever the robot set
+		@Override
+		public void setYaw(double degrees) {}
+
+		/// Hands out the measurements recorded for the current row, with the vision model the robot runs now
+		@Override
+		public VisionMeasurement pollVision() {
+			if(this.visionRow != this.cursor.row()) {
+				this.visionRow = this.cursor.row();
+				this.visionSlot = 0;
+			}
+
+			final int count = Math.min((int)this.cursor.get(this.visionCount), FlightRecorderConstants.visionSlots);
+			if(this.visionSlot >= count) return null;
+
+			final int slot = this.visionSlot++;
+			final int camera = (int)this.cursor.get(this.camera[slot]);
+			final int tags = (int)this.cursor.get(this.tags[slot]);
+			final double distance = this.cursor.get(this.distance[slot]);
+
+			return new VisionMeasurement(
+				camera >= 0 && camera < VisionConstants.cameras.length ? VisionConstants.cameras[camera].name : "unknown",
+				new Pose2d(this.cursor.get(this.x[slot]), this.cursor.get(this.y[slot]), Rotation2d.fromDegrees(this.cursor.get(this.heading[slot]))),
+				this.cursor.get(this.visionTime[slot]),
+				VisionPipeline.stdDevs(tags, distance),
+				tags,
+				distance
+			);
+		}
+
+		@Override
+		public MotorController left() {
+			return this.left;
+		}
+
+		@Override
+		public MotorController right() {
+			return this.right;
+		}
+
+		@Override
+		public void setVelocity(double leftTicksPer100ms, double leftFeedForward, double rightTicksPer100ms, double rightFeedForward) {}
+
+		@Override
+		public double getLeftOutput() {
+			return this.left.get();
+		}
+
+		@Override
+		public double getRightOutput() {
+			return this.right.get();
+		}
+	}
+}
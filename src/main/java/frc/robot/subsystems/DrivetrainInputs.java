@@ -0,0 +1,48 @@
+package frc.robot.subsystems;
+
+import edu.wpi.first.math.geometry.Rotation2d;
+import frc.robot.subsystems.Transmission.GearState;
+
+/**
+ * A snapshot of every drivetrain sensor, taken once at the start of each loop.
+ *
+ * All fields are overwritten in place by {@link Drivetrain#readInputs()} so that
+ * odometry, the pose estimator and commands all see the same values without
+ * issuing their own CAN reads.
+ */
+public final class DrivetrainInputs {
+	/// FPGA time the snapshot was taken at, in seconds
+	public double timestamp;
+
+	/// Gear the transmission was in when the encoders were sampled
+	public GearState gearState = GearState.LOW;
+
+	// Raw integrated sensor readings, in encoder ticks and ticks per 100ms
+	public double leftPositionTicks;
+	public double rightPositionTicks;
+	public double leftVelocityTicks;
+	public double rightVelocityTicks;
+
+	// Wheel distances since the last encoder reset, in meters. Accumulated from tick deltas
+	// so a shift only changes the scale of travel after it, not the distance already driven
+	public double leftDistanceMeters;
+	public double rightDistanceMeters;
+
+	// Pigeon orientation, in degrees, as reported by the device
+	public double yawDegrees;
+	public double pitchDegrees;
+	public double rollDegrees;
+
+	/// Yaw as a Rotation2d, built once per snapshot for odometry
+	public Rotation2d yaw = new Rotation2d();
+
+	/// Which encoder reset the distances are relative to, see {@link Drivetrain#resetEncoders()}
+	int encoderEpoch = -1;
+
+	/// Scratch buffer handed to `getYawPitchRoll` so we never allocate one per read
+	final double[] yawPitchRoll = new double[3];
+
+	public double getAvgDistanceMeters() {
+		return (this.leftDistanceMeters + this.rightDistanceMeters) / 2;
+	}
+}
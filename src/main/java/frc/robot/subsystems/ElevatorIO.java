@@ -0,0 +1,252 @@
+package frc.robot.subsystems;
+
+import com.ctre.phoenix.motorcontrol.ControlMode;
+import com.ctre.phoenix.motorcontrol.LimitSwitchNormal;
+import com.ctre.phoenix.motorcontrol.LimitSwitchSource;
+import com.ctre.phoenix.motorcontrol.StatusFrameEnhanced;
+import com.ctre.phoenix.motorcontrol.can.WPI_TalonFX;
+
+import edu.wpi.first.wpilibj.PneumaticsModuleType;
+import edu.wpi.first.wpilibj.Solenoid;
+import frc.robot.Constants;
+import frc.robot.Constants.ElevatorConstants;
+import frc.robot.Constants.SimulationConstants;
+import frc.robot.Constants.StatusFrameConstants;
+
+/**
+ * Everything {@link Elevator} needs from its motor, limit switches and lock.
+ *
+ * Positions are in encoder ticks, increasing downwards.
+ */
+public interface ElevatorIO {
+	double getPosition();
+
+	/// Overwrites the encoder position, once the elevator is known to be at `ticks`
+	void setPosition(double ticks);
+
+	boolean isTopLimitClosed();
+	boolean isHomeLimitClosed();
+
+	/// Percent output, as a fraction of full output
+	void setOutput(double output);
+	double getOutput();
+
+	void setUnlocked(boolean unlocked);
+	boolean isUnlocked();
+
+	/// Whether the motor controller enforces the limit switches and soft limits
+	default void enableLimits(boolean limitSwitches, boolean softLimits) {}
+
+	default void configureMotors(DeviceConfigurator configurator) {}
+
+	default void configureStatusFrames(StatusFramePolicy statusFrames) {}
+
+	/// Advances any simulated physics by `dtSeconds`
+	default void simulate(double dtSeconds) {}
+
+	/** The elevator Talon and locking piston */
+	public static final class Real implements ElevatorIO {
+		// Fwd: Down
+		// Rev: Up
+		public final WPI_TalonFX motor = new WPI_TalonFX(Constants.CANBusIDs.ElevatorTalon);
+
+		// True: Unlocked
+		// False: Locked
+		private final Solenoid lockingPiston = new Solenoid(PneumaticsModuleType.REVPH, Constants.PneumaticIDs.elevatorLock);
+
+		@Override
+		public double getPosition() {
+			return this.motor.getSelectedSensorPosition();
+		}
+
+		@Override
+		public void setPosition(double ticks) {
+			this.motor.setSelectedSensorPosition(ticks);
+		}
+
+		@Override
+		public boolean isTopLimitClosed() {
+			return this.motor.getSensorCollection().isRevLimitSwitchClosed() == 1;
+		}
+
+		@Override
+		public boolean isHomeLimitClosed() {
+			return this.motor.getSensorCollection().isFwdLimitSwitchClosed() == 1;
+		}
+
+		@Override
+		public void setOutput(double output) {
+			this.motor.set(ControlMode.PercentOutput, output);
+		}
+
+		@Override
+		public double getOutput() {
+			return this.motor.getMotorOutputPercent();
+		}
+
+		@Override
+		public void setUnlocked(boolean unlocked) {
+			this.lockingPiston.set(unlocked);
+		}
+
+		@Override
+		public boolean isUnlocked() {
+			return this.lockingPiston.get();
+		}
+
+		@Override
+		public void enableLimits(boolean limitSwitches, boolean softLimits) {
+			this.motor.overrideLimitSwitchesEnable(limitSwitches);
+			this.motor.overrideSoftLimitsEnable(softLimits);
+		}
+
+		@Override
+		public void configureMotors(DeviceConfigurator configurator) {
+			configurator.device("Elevator")
+				.motor(this.motor, ElevatorConstants.motorConfig)
+
+				// Home limit switch. Stop motor if this switch is triggered.
+				.step("Home Limit Switch", timeout -> this.motor.configForwardLimitSwitchSource(LimitSwitchSource.FeedbackConnector, LimitSwitchNormal.NormallyOpen, timeout))
+
+				// Top limit switch. Read as a digital input
+				.step("Top Limit Switch", timeout -> this.motor.configReverseLimitSwitchSource(LimitSwitchSource.FeedbackConnector, LimitSwitchNormal.NormallyOpen, timeout))
+
+				.step("Bottom Soft Limit", timeout -> this.motor.configForwardSoftLimitThreshold(ElevatorConstants.bottomSoftLimit, timeout))
+				.step("Top Soft Limit", timeout -> this.motor.configReverseSoftLimitThreshold(ElevatorConstants.topSoftLimit, timeout))
+
+				.step("Enable Bottom Soft Limit", timeout -> this.motor.configForwardSoftLimitEnable(true, timeout))
+				.step("Enable Top Soft Limit", timeout -> this.motor.configReverseSoftLimitEnable(true, timeout))
+
+				.then("Override Soft Limits", () -> this.motor.overrideSoftLimitsEnable(true))
+
+				.verify(DeviceConfigurator.readBack(this.motor, config ->
+					DeviceConfigurator.matches(config.forwardSoftLimitThreshold, ElevatorConstants.bottomSoftLimit)
+						&& DeviceConfigurator.matches(config.reverseSoftLimitThreshold, ElevatorConstants.topSoftLimit)
+						&& config.forwardSoftLimitEnable
+						&& config.reverseSoftLimitEnable
+				))
+				.reapplyOnReset(this.motor);
+		}
+
+		@Override
+		public void configureStatusFrames(StatusFramePolicy statusFrames) {
+			// Elevator position and both limit switches are read every loop
+			statusFrames.talon("Elevator", this.motor)
+				.frame(StatusFrameEnhanced.Status_1_General, StatusFrameConstants.normal)
+				.frame(StatusFrameEnhanced.Status_2_Feedback0, StatusFrameConstants.normal)
+				.frame(StatusFrameEnhanced.Status_4_AinTempVbat, StatusFrameConstants.slow)
+				.frame(StatusFrameEnhanced.Status_10_Targets, StatusFrameConstants.off)
+				.frame(StatusFrameEnhanced.Status_12_Feedback1, StatusFrameConstants.off)
+				.frame(StatusFrameEnhanced.Status_13_Base_PIDF0, StatusFrameConstants.off)
+				.frame(StatusFrameEnhanced.Status_14_Turn_PIDF1, StatusFrameConstants.off)
+				.frame(StatusFrameEnhanced.Status_Brushless_Current, StatusFrameConstants.slow);
+		}
+	}
+
+	/** An elevator that moves at a fixed rate per unit of output while unlocked, starting stashed */
+	public static final class Sim implements ElevatorIO {
+		private double position = ElevatorConstants.stashHeight;
+		private double output;
+		private boolean unlocked;
+
+		@Override
+		public double getPosition() {
+			return this.position;
+		}
+
+		@Override
+		public void setPosition(double ticks) {
+			this.position = ticks;
+		}
+
+		@Override
+		public boolean isTopLimitClosed() {
+			return this.position <= ElevatorConstants.topOffset;
+		}
+
+		@Override
+		public boolean isHomeLimitClosed() {
+			return Math.abs(this.position - ElevatorConstants.homeOffset) <= SimulationConstants.elevatorHomeBandTicks;
+		}
+
+		@Override
+		public void setOutput(double output) {
+			this.output = output;
+		}
+
+		@Override
+		public double getOutput() {
+			return this.output;
+		}
+
+		@Override
+		public void setUnlocked(boolean unlocked) {
+			this.unlocked = unlocked;
+		}
+
+		@Override
+		public boolean isUnlocked() {
+			return this.unlocked;
+		}
+
+		@Override
+		public void simulate(double dtSeconds) {
+			if(this.unlocked) this.position += this.output * SimulationConstants.elevatorTicksPerSecond * dtSeconds;
+		}
+	}
+
+	/** Elevator sensors from a flight recording. Outputs go nowhere. */
+	public static final class Replay implements ElevatorIO {
+		private final FlightLog.Cursor cursor;
+		private final int position, topLimit, homeLimit;
+
+		private double output;
+		private boolean unlocked;
+
+		public Replay(FlightLog.Cursor cursor) {
+			this.cursor = cursor;
+			this.position = cursor.log().require("Elevator/Position");
+			this.topLimit = cursor.log().require("Elevator/Top Limit");
+			this.homeLimit = cursor.log().require("Elevator/Home Limit");
+		}
+
+		@Override
+		public double getPosition() {
+			return this.cursor.get(this.position);
+		}
+
+		/// The recorded position already includes whatever the robot set
+		@Override
+		public void setPosition(double ticks) {}
+
+		@Override
+		public boolean isTopLimitClosed() {
+			return this.cursor.get(this.topLimit) != 0;
+		}
+
+		@Override
+		public boolean isHomeLimitClosed() {
+			return this.cursor.get(this.homeLimit) != 0;
+		}
+
+		@Override
+		public void setOutput(double output) {
+			this.output = output;
+		}
+
+		@Override
+		public double getOutput() {
+			return this.output;
+		}
+
+		@Override
+		public void setUnlocked(boolean unlocked) {
+			this.unlocked = unlocked;
+		}
+
+		@Override
+		public boolean isUnlocked() {
+			return this.unlocked;
+		}
+	}
+}
@@ -0,0 +1,163 @@
+package frc.robot.subsystems;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A whole {@link FlightRecorder} file read into memory, one array of values per column.
+ *
+ * A match is a few megabytes at most, so it is simpler to load everything than to stream it.
+ * Flag columns read as 0 or 1.
+ */
+public final class FlightLog {
+	private final String[] names;
+	private final FlightRecorder.Type[] types;
+	private final Map<String, Integer> indices = new HashMap<>();
+	private final double[][] values;
+	private final int rows;
+
+	private FlightLog(String[] names, FlightRecorder.Type[] types, double[][] values, int rows) {
+		this.names = names;
+		this.types = types;
+		this.values = values;
+		this.rows = rows;
+
+		for(int i = 0; i < names.length; i++) this.indices.put(names[i], i);
+	}
+
+	public static FlightLog read(Path path) throws IOException {
+		final ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(path)).order(ByteOrder.LITTLE_ENDIAN);
+
+		final byte[] magic = new byte[4];
+		buffer.get(magic);
+		if(!new String(magic, StandardCharsets.US_ASCII).equals("FLTR")) throw new IOException(path + " is not a flight recording");
+
+		final int version = buffer.getInt();
+		if(version != FlightRecorder.version) throw new IOException(path + " is version " + version + ", expected " + FlightRecorder.version);
+
+		final int rowsPerBlock = buffer.getInt();
+		final int columns = buffer.getInt();
+
+		final String[] names = new String[columns];
+		final FlightRecorder.Type[] types = new FlightRecorder.Type[columns];
+		int blockSize = Integer.BYTES;
+		for(int i = 0; i < columns; i++) {
+			types[i] = FlightRecorder.Type.values()[buffer.get()];
+
+			final byte[] name = new byte[buffer.getShort()];
+			buffer.get(name);
+			names[i] = new String(name, StandardCharsets.UTF_8);
+
+			blockSize += types[i].bytes * rowsPerBlock;
+		}
+
+		// The last block may have been cut short by a power loss, keep only whole ones
+		final int blocks = buffer.remaining() / blockSize;
+		final double[][] values = new double[columns][blocks * rowsPerBlock];
+		int rows = 0;
+
+		for(int block = 0; block < blocks; block++) {
+			final int start = buffer.position();
+			final int blockRows = buffer.getInt(start);
+
+			int offset = start + Integer.BYTES;
+			for(int column = 0; column < columns; column++) {
+				for(int row = 0; row < blockRows; row++) {
+					values[column][rows + row] = FlightLog.value(buffer, types[column], offset + row * types[column].bytes);
+				}
+				offset += types[column].bytes * rowsPerBlock;
+			}
+
+			rows += blockRows;
+			buffer.position(start + blockSize);
+		}
+
+		return new FlightLog(names, types, values, rows);
+	}
+
+	private static double value(ByteBuffer buffer, FlightRecorder.Type type, int at) {
+		switch(type) {
+			case Float64:
+				return buffer.getDouble(at);
+
+			case Float32:
+				return buffer.getFloat(at);
+
+			case Bool:
+			default:
+				return buffer.get(at);
+		}
+	}
+
+	public int rows() {
+		return this.rows;
+	}
+
+	public int columns() {
+		return this.names.length;
+	}
+
+	public String name(int column) {
+		return this.names[column];
+	}
+
+	public FlightRecorder.Type type(int column) {
+		return this.types[column];
+	}
+
+	/// The index of the named column, or -1 if this recording does not have it
+	public int column(String name) {
+		return this.indices.getOrDefault(name, -1);
+	}
+
+	/// The index of the named column, failing if this recording does not have it
+	public int require(String name) {
+		final int column = this.column(name);
+		if(column == -1) throw new IllegalArgumentException("Recording has no column " + name);
+
+		return column;
+	}
+
+	public double get(int column, int row) {
+		return this.values[column][row];
+	}
+
+	/// A cursor on the first row
+	public Cursor cursor() {
+		return new Cursor();
+	}
+
+	/** Steps through the recording one row at a time, for the replay IO implementations to share */
+	public final class Cursor {
+		private int row;
+
+		private Cursor() {}
+
+		public FlightLog log() {
+			return FlightLog.this;
+		}
+
+		public int row() {
+			return this.row;
+		}
+
+		/// Moves to the next row, returning false once there are none left
+		public boolean advance() {
+			if(this.row + 1 >= FlightLog.this.rows) return false;
+
+			this.row++;
+			return true;
+		}
+
+		/// The value of `column` in the current row
+		public double get(int column) {
+			return FlightLog.this.values[column][this.row];
+		}
+	}
+}
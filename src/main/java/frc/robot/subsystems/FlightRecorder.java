@@ -0,0 +1,300 @@
+package frc.robot.subsystems;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+import java.util.function.DoubleSupplier;
+
+import edu.wpi.first.wpilibj.DriverStation;
+import edu.wpi.first.wpilibj.RobotBase;
+import edu.wpi.first.wpilibj.Timer;
+import frc.robot.Constants.FlightRecorderConstants;
+
+/**
+ * Records every declared input and output once per loop into a compact binary file.
+ *
+ * Rows are gathered into blocks of `rowsPerBlock` loops. Within a block each column is stored
+ * contiguously, so a block is `[int rows][column 0 x rowsPerBlock][column 1 x rowsPerBlock]...`,
+ * always the same size whatever `rows` is. The file starts with a header describing the columns:
+ * `"FLTR"`, `int version`, `int rowsPerBlock`, `int columns`, then per column
+ * `byte type`, `short nameLength` and the UTF-8 name. Everything is little endian.
+ *
+ * Blocks are preallocated and handed to a background thread that appends them to a
+ * {@link FileChannel}, so the loop only ever writes into memory. If the writer falls far enough
+ * behind that no block is free, rows are dropped and counted instead of waiting on flash.
+ *
+ * Rows are only recorded while the Driver Station is attached and until the robot has been
+ * disabled for `disabledSeconds`, so a robot left on in the pit records nothing. A recording is
+ * split into a new file once it reaches `maxFileBytes`, and the oldest recordings are deleted to
+ * keep the directory within its budget.
+ */
+public final class FlightRecorder {
+	/// How a column is stored, and the size of one value in bytes
+	public enum Type {
+		Float64(8),
+		Float32(4),
+		Bool(1);
+
+		public final int bytes;
+
+		private Type(int bytes) {
+			this.bytes = bytes;
+		}
+	}
+
+	private static final class Column {
+		private final String name;
+		private final Type type;
+		private final DoubleSupplier value;
+		private final BooleanSupplier flag;
+
+		// Byte offset of this column's values within a block
+		private int offset;
+
+		private Column(String name, Type type, DoubleSupplier value, BooleanSupplier flag) {
+			this.name = name;
+			this.type = type;
+			this.value = value;
+			this.flag = flag;
+		}
+
+		private void sample(ByteBuffer block, int row) {
+			final int at = this.offset + row * this.type.bytes;
+
+			switch(this.type) {
+				case Float64:
+					block.putDouble(at, this.value.getAsDouble());
+					break;
+
+				case Float32:
+					block.putFloat(at, (float)this.value.getAsDouble());
+					break;
+
+				case Bool:
+					block.put(at, (byte)(this.flag.getAsBoolean() ? 1 : 0));
+					break;
+			}
+		}
+	}
+
+	public static final int version = 1;
+
+	private final ArrayList<Column> columns = new ArrayList<>();
+
+	// Empty blocks ready for the loop, and filled blocks waiting on the writer thread
+	private final ArrayBlockingQueue<ByteBuffer> free = new ArrayBlockingQueue<>(FlightRecorderConstants.buffers);
+	private final ArrayBlockingQueue<ByteBuffer> full = new ArrayBlockingQueue<>(FlightRecorderConstants.buffers);
+
+	private ByteBuffer block;
+	private int row;
+	private boolean started;
+
+	// FPGA time the robot was last seen enabled, or the recorder started
+	private double lastEnabled;
+
+	private final AtomicLong droppedRows = new AtomicLong();
+	private final AtomicLong bytesWritten = new AtomicLong();
+
+	public FlightRecorder() {
+		this.precise("Timestamp", Timer::getFPGATimestamp);
+
+		Telemetry.track("Recorder Dropped Rows", this.droppedRows::get, Telemetry.Rate.Slow);
+		Telemetry.track("Recorder Bytes", this.bytesWritten::get, Telemetry.Rate.Slow);
+	}
+
+	/// Records `value` every loop as a 32 bit float
+	public FlightRecorder column(String name, DoubleSupplier value) {
+		return this.add(new Column(name, Type.Float32, value, null));
+	}
+
+	/// Records `value` every loop at full double precision
+	public FlightRecorder precise(String name, DoubleSupplier value) {
+		return this.add(new Column(name, Type.Float64, value, null));
+	}
+
+	/// Records `flag` every loop as a single byte
+	public FlightRecorder flag(String name, BooleanSupplier flag) {
+		return this.add(new Column(name, Type.Bool, null, flag));
+	}
+
+	private FlightRecorder add(Column column) {
+		if(this.started) throw new IllegalStateException("Flight recorder columns must be declared before it starts");
+
+		this.columns.add(column);
+		return this;
+	}
+
+	/// Lays out the blocks, opens the file and starts the writer thread. Columns are fixed from here on.
+	public void start() {
+		if(!FlightRecorderConstants.enabled) return;
+
+		this.start(FlightRecorder.directory());
+	}
+
+	/// Starts recording into `directory` instead of the one picked for this robot
+	void start(Path directory) {
+		int size = Integer.BYTES;
+		for(final Column column : this.columns) {
+			column.offset = size;
+			size += column.type.bytes * FlightRecorderConstants.rowsPerBlock;
+		}
+
+		final FileChannel channel;
+		try {
+			Files.createDirectories(directory);
+			channel = FlightRecorder.open(directory);
+		} catch(IOException e) {
+			Log.error(e);
+			return;
+		}
+
+		for(int i = 0; i < FlightRecorderConstants.buffers; i++) {
+			this.free.add(ByteBuffer.allocateDirect(size).order(ByteOrder.LITTLE_ENDIAN));
+		}
+
+		final ByteBuffer header = this.header();
+		final Thread writer = new Thread(() -> this.run(directory, channel, header), "Flight Recorder");
+		writer.setDaemon(true);
+		writer.start();
+
+		this.lastEnabled = Timer.getFPGATimestamp();
+		this.started = true;
+		Log.writeln("[Flight Recorder] " + this.columns.size() + " columns, " + size + " byte blocks");
+	}
+
+	/// Records one row. Call once at the end of every loop.
+	public void sample() {
+		if(!this.started) return;
+
+		if(!this.recording()) {
+			// Get the last rows before the pause onto flash
+			this.flush();
+			return;
+		}
+
+		if(this.block == null) {
+			this.block = this.free.poll();
+			if(this.block == null) {
+				this.droppedRows.incrementAndGet();
+				return;
+			}
+		}
+
+		for(int i = 0; i < this.columns.size(); i++) this.columns.get(i).sample(this.block, this.row);
+
+		if(++this.row == FlightRecorderConstants.rowsPerBlock) this.flush();
+	}
+
+	/// Whether to record this loop: while the Driver Station is attached, up to `disabledSeconds` after the robot was last enabled
+	private boolean recording() {
+		final double now = Timer.getFPGATimestamp();
+		if(DriverStation.isEnabled()) this.lastEnabled = now;
+
+		return DriverStation.isDSAttached() && now - this.lastEnabled <= FlightRecorderConstants.disabledSeconds;
+	}
+
+	/// Hands the current block to the writer even if it is not full, so what is recorded so far reaches flash
+	public void flush() {
+		if(this.block == null || this.row == 0) return;
+
+		this.block.putInt(0, this.row);
+		this.full.add(this.block);
+
+		this.block = null;
+		this.row = 0;
+	}
+
+	private ByteBuffer header() {
+		int size = 4 + Integer.BYTES * 3;
+		final ArrayList<byte[]> names = new ArrayList<>();
+		for(final Column column : this.columns) {
+			final byte[] name = column.name.getBytes(StandardCharsets.UTF_8);
+			names.add(name);
+			size += 1 + Short.BYTES + name.length;
+		}
+
+		final ByteBuffer header = ByteBuffer.allocate(size).order(ByteOrder.LITTLE_ENDIAN);
+		header.put("FLTR".getBytes(StandardCharsets.US_ASCII));
+		header.putInt(FlightRecorder.version);
+		header.putInt(FlightRecorderConstants.rowsPerBlock);
+		header.putInt(this.columns.size());
+
+		for(int i = 0; i < this.columns.size(); i++) {
+			header.put((byte)this.columns.get(i).type.ordinal());
+			header.putShort((short)names.get(i).length);
+			header.put(names.get(i));
+		}
+
+		header.flip();
+		return header;
+	}
+
+	private void run(Path directory, FileChannel first, ByteBuffer header) {
+		FileChannel channel = first;
+
+		try {
+			this.write(channel, header);
+
+			while(true) {
+				final ByteBuffer block = this.full.take();
+
+				// Every file starts with the header, so each one reads on its own
+				if(channel.size() >= FlightRecorderConstants.maxFileBytes) {
+					channel.close();
+					channel = FlightRecorder.open(directory);
+					this.write(channel, header.rewind());
+				}
+
+				block.clear();
+				this.write(channel, block);
+				channel.force(false);
+
+				this.free.add(block);
+			}
+		} catch(IOException e) {
+			Log.error(e);
+		} catch(InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} finally {
+			try {
+				channel.close();
+			} catch(IOException e) {
+				Log.error(e);
+			}
+		}
+	}
+
+	/// Creates the next recording in `directory`, first deleting the oldest ones to leave room for it to fill up
+	private static FileChannel open(Path directory) throws IOException {
+		final Path file = directory.resolve("flight-" + System.currentTimeMillis() + ".bin");
+		final FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+
+		final long budget = directory.startsWith(FlightRecorderConstants.usbDirectory) ? FlightRecorderConstants.usbBudgetBytes : FlightRecorderConstants.robotBudgetBytes;
+		final int deleted = Retention.prune(directory, "flight-", budget - FlightRecorderConstants.maxFileBytes, file);
+		if(deleted > 0) Log.writeln("[Flight Recorder] Deleted the " + deleted + " oldest recordings to stay within " + (budget >> 20) + "MB");
+
+		return channel;
+	}
+
+	private void write(FileChannel channel, ByteBuffer buffer) throws IOException {
+		while(buffer.hasRemaining()) this.bytesWritten.addAndGet(channel.write(buffer));
+	}
+
+	/// A USB stick if one is plugged into the roboRIO, otherwise the roboRIO's own flash
+	private static Path directory() {
+		if(!RobotBase.isReal()) return Paths.get(FlightRecorderConstants.simulationDirectory);
+
+		final Path usb = Paths.get(FlightRecorderConstants.usbDirectory);
+		return Files.isWritable(usb) ? usb.resolve("flight") : Paths.get(FlightRecorderConstants.robotDirectory);
+	}
+}
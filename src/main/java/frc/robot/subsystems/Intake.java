@@ -1,60 +1,34 @@
 package frc.robot.subsystems;
 
-import com.ctre.phoenix.motorcontrol.*;
-import com.ctre.phoenix.motorcontrol.can.WPI_TalonSRX;
-
 import edu.wpi.first.wpilibj2.command.SubsystemBase;
-import frc.robot.Constants;
 
 public class Intake extends SubsystemBase {
-	public final WPI_TalonSRX motor = new WPI_TalonSRX(Constants.CANBusIDs.IntakeTalon);
+	public final IntakeIO io;
 	private double output = 0;
 
-	public Intake() {
-		this.configureMotors();
+	public Intake(IntakeIO io) {
+		this.io = io;
 	}
 
-	public void configureMotors() {
-		// Configure the motors
-		for(WPI_TalonSRX fx : new WPI_TalonSRX[] { this.motor }) {
-			// Reset settings for safety
-			fx.configFactoryDefault();
-
-			// Sets voltage compensation to 10, used for percent output
-			fx.configVoltageCompSaturation(10);
-			fx.enableVoltageCompensation(true);
-
-			// Setting just in case
-			fx.configNominalOutputForward(0);
-			fx.configNominalOutputReverse(0);
-			fx.configPeakOutputForward(1);
-			fx.configPeakOutputReverse(-1);
-
-			fx.configOpenloopRamp(0.1);
-
-			// Setting deadband(area required to start moving the motor) to 1%
-			fx.configNeutralDeadband(0.01);
-
-			// Set to brake mode, will brake the motor when no power is sent
-			fx.setNeutralMode(NeutralMode.Brake);
+	/// Declares the Talon configuration, which RobotContainer applies to every device at once
+	public void configureMotors(DeviceConfigurator configurator) {
+		this.io.configureMotors(configurator);
+	}
 
-			/**
-			 * Setting input side current limit (amps)
-			 * 45 continious, 80 peak, 30 millieseconds allowed at peak
-			 * 40 amp breaker can support above 40 amps for a little bit
-			 * Falcons have insane acceleration so allowing it to reach 80 for 0.03 seconds
-			 * should be fine
-			 */
-			fx.configSupplyCurrentLimit(new SupplyCurrentLimitConfiguration(true, 40, 55, 20));
+	/// Declares the status frames the intake reads, which RobotContainer applies to every device at once
+	public void configureStatusFrames(StatusFramePolicy statusFrames) {
+		this.io.configureStatusFrames(statusFrames);
+	}
 
-			// Either using the integrated Falcon sensor or an external one, will change if
-			// needed
-			fx.configSelectedFeedbackSensor(FeedbackDevice.IntegratedSensor);
-		}
+	/// Declares what the flight recorder should capture from the intake every loop
+	public void configureRecorder(FlightRecorder recorder) {
+		recorder
+			.column("Intake/Output", () -> this.output)
+			.column("Intake/Current", this.io::getCurrent);
 	}
 
 	public void setOutput(double output) {
 		this.output = output;
-		this.motor.set(ControlMode.PercentOutput, this.output);
+		this.io.setOutput(this.output);
 	}
 }
@@ -0,0 +1,76 @@
+package frc.robot.subsystems;
+
+import com.ctre.phoenix.motorcontrol.ControlMode;
+import com.ctre.phoenix.motorcontrol.StatusFrameEnhanced;
+import com.ctre.phoenix.motorcontrol.can.WPI_TalonSRX;
+
+import frc.robot.Constants;
+import frc.robot.Constants.IntakeConstants;
+import frc.robot.Constants.StatusFrameConstants;
+
+/**
+ * Everything {@link Intake} needs from its motor.
+ */
+public interface IntakeIO {
+	/// Percent output, as a fraction of full output
+	void setOutput(double output);
+
+	/// Stator current, in amps
+	double getCurrent();
+
+	default void configureMotors(DeviceConfigurator configurator) {}
+
+	default void configureStatusFrames(StatusFramePolicy statusFrames) {}
+
+	/** The intake Talon */
+	public static final class Real implements IntakeIO {
+		public final WPI_TalonSRX motor = new WPI_TalonSRX(Constants.CANBusIDs.IntakeTalon);
+
+		@Override
+		public void setOutput(double output) {
+			this.motor.set(ControlMode.PercentOutput, output);
+		}
+
+		@Override
+		public double getCurrent() {
+			return this.motor.getStatorCurrent();
+		}
+
+		@Override
+		public void configureMotors(DeviceConfigurator configurator) {
+			configurator.device("Intake")
+				.motor(this.motor, IntakeConstants.motorConfig)
+				.reapplyOnReset(this.motor);
+		}
+
+		@Override
+		public void configureStatusFrames(StatusFramePolicy statusFrames) {
+			// The intake is open loop and never read back
+			statusFrames.talon("Intake", this.motor)
+				.frame(StatusFrameEnhanced.Status_1_General, StatusFrameConstants.slow)
+				.frame(StatusFrameEnhanced.Status_2_Feedback0, StatusFrameConstants.off)
+				.frame(StatusFrameEnhanced.Status_3_Quadrature, StatusFrameConstants.off)
+				.frame(StatusFrameEnhanced.Status_4_AinTempVbat, StatusFrameConstants.off)
+				.frame(StatusFrameEnhanced.Status_8_PulseWidth, StatusFrameConstants.off)
+				.frame(StatusFrameEnhanced.Status_10_Targets, StatusFrameConstants.off)
+				.frame(StatusFrameEnhanced.Status_11_UartGadgeteer, StatusFrameConstants.off)
+				.frame(StatusFrameEnhanced.Status_12_Feedback1, StatusFrameConstants.off)
+				.frame(StatusFrameEnhanced.Status_13_Base_PIDF0, StatusFrameConstants.off)
+				.frame(StatusFrameEnhanced.Status_14_Turn_PIDF1, StatusFrameConstants.off);
+		}
+	}
+
+	/**
+	 * No motor at all. The intake is open loop and nothing reads it back, so simulation and
+	 * replay have nothing to model.
+	 */
+	public static final class None implements IntakeIO {
+		@Override
+		public void setOutput(double output) {}
+
+		@Override
+		public double getCurrent() {
+			return 0;
+		}
+	}
+}
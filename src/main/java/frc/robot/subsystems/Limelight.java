@@ -1,28 +1,129 @@
 package frc.robot.subsystems;
 
 import edu.wpi.first.math.geometry.*;
+import edu.wpi.first.math.util.Units;
 import edu.wpi.first.networktables.*;
 import edu.wpi.first.wpilibj.RobotBase;
+import frc.robot.Constants.VisionConstants;
+import frc.robot.subsystems.LimelightHelpers.BotPoseSample;
 import frc.robot.subsystems.LimelightHelpers.LimelightResults;
 
 public class Limelight {
+	/**
+	 * A botpose topic decoded into a reusable sample. The array is only fetched and
+	 * decoded when the topic has changed since the last read, and the Pose2d is only
+	 * rebuilt when someone asks for it after a change.
+	 */
+	private static final class CachedPose {
+		private final DoubleArraySubscriber subscriber;
+		private final BotPoseSample sample = new BotPoseSample();
+		private long lastChange = -1;
+		private Pose2d pose2d;
+
+		CachedPose(DoubleArraySubscriber subscriber) {
+			this.subscriber = subscriber;
+		}
+
+		BotPoseSample sample() {
+			final long change = this.subscriber.getLastChange();
+
+			if(change != this.lastChange) {
+				this.lastChange = change;
+				LimelightHelpers.decodeBotPose(this.subscriber.get(), this.sample);
+				this.sample.timestamp = change / 1e6;
+				this.pose2d = null;
+			}
+
+			return this.sample;
+		}
+
+		Pose2d pose2d() {
+			final BotPoseSample sample = this.sample();
+
+			if(this.pose2d == null) this.pose2d = sample.valid ? sample.toPose2d() : new Pose2d();
+
+			return this.pose2d;
+		}
+	}
+
 	private NetworkTable nt;
 	private String limelightName;
 
+	// Subscribers are created once here so that reads are a handle lookup rather than a string lookup
+	private final DoubleSubscriber tv;
+	private final DoubleSubscriber tx;
+	private final DoubleSubscriber ty;
+	private final DoubleSubscriber ta;
+	private final DoubleSubscriber ts;
+	private final DoubleSubscriber tid;
+	private final DoubleArraySubscriber botpose;
+	private final CachedPose pose;
+	private final CachedPose bluePose;
+	private final CachedPose redPose;
+	private final StringSubscriber json;
+
+	private final DoublePublisher stream;
+
 	public Limelight(String limelightName) {
 		this.nt = NetworkTableInstance.getDefault().getTable(limelightName);
 		this.limelightName = limelightName;
+
+		this.tv = this.nt.getDoubleTopic("tv").subscribe(0);
+		this.tx = this.nt.getDoubleTopic("tx").subscribe(0);
+		this.ty = this.nt.getDoubleTopic("ty").subscribe(0);
+		this.ta = this.nt.getDoubleTopic("ta").subscribe(0);
+		this.ts = this.nt.getDoubleTopic("ts").subscribe(0);
+		this.tid = this.nt.getDoubleTopic("tid").subscribe(0);
+
+		// Queued topics keep a handful of updates around so nothing published between two loops is lost
+		this.botpose = this.nt.getDoubleArrayTopic("botpose").subscribe(new double[0], PubSubOption.pollStorage(10));
+		this.json = this.nt.getStringTopic("json").subscribe("", PubSubOption.pollStorage(10));
+
+		this.pose = new CachedPose(this.botpose);
+		this.bluePose = new CachedPose(this.nt.getDoubleArrayTopic("botpose_wpiblue").subscribe(new double[0]));
+		this.redPose = new CachedPose(this.nt.getDoubleArrayTopic("botpose_wpired").subscribe(new double[0]));
+
+		this.stream = this.nt.getDoubleTopic("stream").publish();
+
 		this.setStream(0);
 	}
 
+	/**
+	 * Creates a Limelight from its camera configuration, pushing the configured
+	 * robot-to-camera transform to the device so that its botpose is reported for
+	 * the center of the robot.
+	 */
+	public Limelight(VisionConstants.Camera camera) {
+		this(camera.name);
+
+		if(camera.robotToCamera != null) this.setCameraPose(camera.robotToCamera);
+	}
+
+	/// Sets where the camera is on the robot. The Limelight's side axis points right, WPILib's y axis points left.
+	public void setCameraPose(Transform3d robotToCamera) {
+		LimelightHelpers.setCameraPose_RobotSpace(
+			this.limelightName,
+			robotToCamera.getX(),
+			-robotToCamera.getY(),
+			robotToCamera.getZ(),
+			Units.radiansToDegrees(robotToCamera.getRotation().getX()),
+			Units.radiansToDegrees(robotToCamera.getRotation().getY()),
+			Units.radiansToDegrees(robotToCamera.getRotation().getZ())
+		);
+	}
+
+	public String getName() {
+		return this.limelightName;
+	}
+
 	public void setStream(int stream) {
-		this.nt.getEntry("stream").setNumber(stream);
+		this.stream.set(stream);
 	}
 
 	// Whether the limelight has any valid targets (0 or 1)
 	public boolean hasValidTargets() {
 		if(RobotBase.isReal()) {
-			return this.nt.getEntry("tv").getDouble(0) == 1;
+			return this.tv.get() == 1;
 		} else {
 			// return this value in simulation
 			return true;
@@ -33,37 +134,62 @@ public class Limelight {
 		return LimelightHelpers.getLatestResults(this.limelightName);
 	}
 
+	public StringTopic getResultsTopic() {
+		return this.json.getTopic();
+	}
+
+	/**
+	 * Every JSON results dump published since the last call, oldest first.
+	 * Each update's timestamp is the local NetworkTables time it arrived at, in microseconds.
+	 */
+	public TimestampedString[] readResultsQueue() {
+		return this.json.readQueue();
+	}
+
+	/**
+	 * Every botpose array published since the last call, oldest first.
+	 * Each update's timestamp is the local NetworkTables time it arrived at, in microseconds.
+	 */
+	public TimestampedDoubleArray[] readBotPoseQueue() {
+		return this.botpose.readQueue();
+	}
+
 	public int getTargetAprilTagID() {
-		return (int)LimelightHelpers.getFiducialID(this.limelightName);
+		return (int)this.tid.get();
 	}
 
 	// Horizontal Offset From Crosshair To Target (LL1: -27 degrees to 27 degrees | LL2: -29.8 to 29.8 degrees)
 	public double getTargetHorizontalOffset() {
-		return this.nt.getEntry("tx").getDouble(0.0);
+		return this.tx.get();
 	}
 
 	// Vertical Offset From Crosshair To Target (LL1: -20.5 degrees to 20.5 degrees | LL2: -24.85 to 24.85 degrees)
 	public double getTargetVerticalOffset() {
-		return this.nt.getEntry("ty").getDouble(0.0);
+		return this.ty.get();
 	}
 
 	// Target Area (0% of image to 100% of image)
 	public double getTargetArea() {
-		return this.nt.getEntry("ta").getDouble(0.0);
+		return this.ta.get();
 	}
 
 	public double getTargetSkew() {
-		return this.nt.getEntry("ts").getDouble(0);
+		return this.ts.get();
 	}
 
 	// Robot transform in 3D field-space. Translation (X,Y,Z) Rotation(X,Y,Z)
 	public Pose3d getPose3d() {
-		return LimelightHelpers.getBotPose3d(this.limelightName);
+		return this.pose.sample().toPose3d();
 	}
 
 	// Robot transform in 2D field-space. Translation (X,Y) Rotation(Z)
 	public Pose2d getPose2d() {
-		return LimelightHelpers.getBotPose2d(this.limelightName);
+		return this.pose.pose2d();
+	}
+
+	// Robot transform in field-space decoded in place, including total latency. Do not hold on to the result.
+	public BotPoseSample getPoseSample() {
+		return this.pose.sample();
 	}
 
 	// ---------------------------------------------------------------------
@@ -72,11 +198,15 @@ public class Limelight {
 
 	// Robot transform in field-space (blue driverstation WPILIB origin). Translation (X,Y,Z) Rotation(X,Y,Z)
 	public Pose3d getBluePose3d() {
-		return LimelightHelpers.getBotPose3d_wpiBlue(this.limelightName);
+		return this.bluePose.sample().toPose3d();
 	}
 
 	public Pose2d getBluePose2d() {
-		return LimelightHelpers.getBotPose2d_wpiBlue(this.limelightName);
+		return this.bluePose.pose2d();
+	}
+
+	public BotPoseSample getBluePoseSample() {
+		return this.bluePose.sample();
 	}
 
 	// ---------------------------------------------------------------------
@@ -84,12 +214,16 @@ public class Limelight {
 	// ---------------------------------------------------------------------
 	
 	public Pose2d getRedPose2d() {
-		return LimelightHelpers.getBotPose2d_wpiRed(this.limelightName);
+		return this.redPose.pose2d();
+	}
+
+	public BotPoseSample getRedPoseSample() {
+		return this.redPose.sample();
 	}
 
 	// Robot transform in field-space (red driverstation WPILIB origin). Translation (X,Y,Z) Rotation(X,Y,Z)
 	public Pose3d getRedPose3d() {
-		return LimelightHelpers.getBotPose3d_wpiRed(this.limelightName);
+		return this.redPose.sample().toPose3d();
 	}
 
 	// ------------------------------------------------------------------------
@@ -17,12 +17,20 @@ import java.io.IOException;
 import java.net.HttpURLConnection;
 import java.net.MalformedURLException;
 import java.net.URL;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumSet;
 import java.util.concurrent.CompletableFuture;
+import java.util.function.IntFunction;
+import java.util.function.Supplier;
 
 import com.fasterxml.jackson.annotation.JsonFormat;
 import com.fasterxml.jackson.annotation.JsonFormat.Shape;
 import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
@@ -180,6 +188,18 @@ public class LimelightHelpers {
 			return toPose2D(targetPose_RobotSpace);
 		}
 
+		/**
+		 * Straight-line distance from the camera to the tag, computed without building a Pose3d
+		 */
+		public double getTargetDistance_CameraSpace()
+		{
+			if(targetPose_CameraSpace.length < 3) return 0;
+			return Math.sqrt(
+				targetPose_CameraSpace[0] * targetPose_CameraSpace[0]
+				+ targetPose_CameraSpace[1] * targetPose_CameraSpace[1]
+				+ targetPose_CameraSpace[2] * targetPose_CameraSpace[2]);
+		}
+
 		@JsonProperty("ta")
 		public double ta;
 
@@ -368,8 +388,54 @@ public class LimelightHelpers {
 		}
 	}
 
+	/**
+	 * A reusable, mutable botpose. Decoding into one of these allocates nothing,
+	 * which keeps per-loop pose reads off the garbage collector.
+	 */
+	public static class BotPoseSample {
+		// Translation, in meters
+		public double x;
+		public double y;
+		public double z;
+
+		// Rotation, in degrees
+		public double roll;
+		public double pitch;
+		public double yaw;
+
+		/// Total latency (capture + pipeline) in milliseconds, element 6 of the botpose array
+		public double latency;
+
+		/// Local time the array was received at, in seconds
+		public double timestamp;
+
+		/// False if the last decoded array was too short to hold a pose
+		public boolean valid;
+
+		/// Time the image this pose was computed from was captured, in seconds
+		public double getCaptureTimestamp() {
+			return this.timestamp - this.latency / 1000.0;
+		}
+
+		public double getYawRadians() {
+			return Units.degreesToRadians(this.yaw);
+		}
+
+		public Pose2d toPose2d() {
+			return new Pose2d(this.x, this.y, new Rotation2d(this.getYawRadians()));
+		}
+
+		public Pose3d toPose3d() {
+			return new Pose3d(
+				new Translation3d(this.x, this.y, this.z),
+				new Rotation3d(Units.degreesToRadians(this.roll), Units.degreesToRadians(this.pitch), this.getYawRadians()));
+		}
+	}
+
 	private static ObjectMapper mapper;
 
+	private static final JsonFactory jsonFactory = new JsonFactory();
+
 	/**
 	 * Print JSON Parse time to the console in milliseconds
 	 */
@@ -405,6 +471,31 @@ public class LimelightHelpers {
 		return new Pose2d(tran2d, r2d);
 	}
 
+	/**
+	 * Decodes a botpose array into `out` without allocating.
+	 *
+	 * @return whether the array held a valid pose
+	 */
+	public static boolean decodeBotPose(double[] inData, BotPoseSample out) {
+		if(inData.length < 6) {
+			out.x = out.y = out.z = 0;
+			out.roll = out.pitch = out.yaw = 0;
+			out.latency = 0;
+			out.valid = false;
+			return false;
+		}
+
+		out.x = inData[0];
+		out.y = inData[1];
+		out.z = inData[2];
+		out.roll = inData[3];
+		out.pitch = inData[4];
+		out.yaw = inData[5];
+		out.latency = inData.length > 6 ? inData[6] : 0;
+		out.valid = true;
+		return true;
+	}
+
 	public static NetworkTable getLimelightNTTable(String tableName) {
 		return NetworkTableInstance.getDefault().getTable(sanitizeName(tableName));
 	}
@@ -632,6 +723,18 @@ public class LimelightHelpers {
 
 	}
 
+	public static boolean getBotPose(String limelightName, BotPoseSample out) {
+		return decodeBotPose(getBotPose(limelightName), out);
+	}
+
+	public static boolean getBotPose_wpiBlue(String limelightName, BotPoseSample out) {
+		return decodeBotPose(getBotPose_wpiBlue(limelightName), out);
+	}
+
+	public static boolean getBotPose_wpiRed(String limelightName, BotPoseSample out) {
+		return decodeBotPose(getBotPose_wpiRed(limelightName), out);
+	}
+
 	public static boolean getTV(String limelightName) {
 		return 1.0 == getLimelightNTDouble(limelightName, "tv");
 	}
@@ -754,6 +857,13 @@ public class LimelightHelpers {
 	 * Parses Limelight's JSON results dump into a LimelightResults Object
 	 */
 	public static LimelightResults getLatestResults(String limelightName) {
+		return parseResults(getJSONDump(limelightName));
+	}
+
+	/**
+	 * Parses a JSON results dump, such as one read from a subscriber queue, into a LimelightResults Object
+	 */
+	public static LimelightResults parseResults(String json) {
 
 		long start = System.nanoTime();
 		LimelightHelpers.LimelightResults results = new LimelightHelpers.LimelightResults();
@@ -762,7 +872,7 @@ public class LimelightHelpers {
 		}
 
 		try {
-			results = mapper.readValue(getJSONDump(limelightName), LimelightResults.class);
+			results = mapper.readValue(json, LimelightResults.class);
 		} catch (JsonProcessingException e) {
 			System.err.println("lljson error: " + e.getMessage());
 		}
@@ -776,4 +886,364 @@ public class LimelightHelpers {
 
 		return results;
 	}
-}
\ No newline at end of file
+
+	/**
+	 * The target families present in a results dump
+	 */
+	public static enum TargetFamily {
+		Retro,
+		Fiducial,
+		Classifier,
+		Detector,
+		Barcode
+	}
+
+	/**
+	 * A growable pool of target objects. Arrays handed out by `view` are cached per
+	 * length and always hold the same pooled objects, so once the pool has grown to
+	 * the largest target count seen, refilling it allocates nothing.
+	 */
+	private static final class TargetPool<T> {
+		private final Supplier<T> factory;
+		private final IntFunction<T[]> arrayFactory;
+		private final ArrayList<T> items = new ArrayList<>();
+		private final ArrayList<T[]> views = new ArrayList<>();
+
+		TargetPool(Supplier<T> factory, IntFunction<T[]> arrayFactory) {
+			this.factory = factory;
+			this.arrayFactory = arrayFactory;
+		}
+
+		T get(int index) {
+			while(this.items.size() <= index) this.items.add(this.factory.get());
+			return this.items.get(index);
+		}
+
+		T[] view(int count) {
+			while(this.views.size() <= count) this.views.add(null);
+
+			T[] view = this.views.get(count);
+			if(view == null) {
+				view = this.arrayFactory.apply(count);
+				for(int i = 0; i < count; i++) view[i] = this.get(i);
+				this.views.set(count, view);
+			}
+
+			return view;
+		}
+	}
+
+	/**
+	 * Streaming, token-level decoder for Limelight's JSON results dump.
+	 *
+	 * Unlike getLatestResults, which builds a brand new object tree through ObjectMapper
+	 * on every call, a decoder fills the same pooled LimelightResults every time and
+	 * skips over target families it was not asked for without materializing them.
+	 * The returned results are overwritten by the next call to decode, so a decoder
+	 * should only be used from one thread.
+	 */
+	public static class ResultsDecoder {
+		private final EnumSet<TargetFamily> families = EnumSet.noneOf(TargetFamily.class);
+		private final LimelightResults results = new LimelightResults();
+
+		private final TargetPool<LimelightTarget_Retro> retro = new TargetPool<>(LimelightTarget_Retro::new, LimelightTarget_Retro[]::new);
+		private final TargetPool<LimelightTarget_Fiducial> fiducials = new TargetPool<>(LimelightTarget_Fiducial::new, LimelightTarget_Fiducial[]::new);
+		private final TargetPool<LimelightTarget_Classifier> classifier = new TargetPool<>(LimelightTarget_Classifier::new, LimelightTarget_Classifier[]::new);
+		private final TargetPool<LimelightTarget_Detector> detector = new TargetPool<>(LimelightTarget_Detector::new, LimelightTarget_Detector[]::new);
+		private final TargetPool<LimelightTarget_Barcode> barcode = new TargetPool<>(LimelightTarget_Barcode::new, LimelightTarget_Barcode[]::new);
+
+		private int retroCount;
+		private int fiducialCount;
+		private int classifierCount;
+		private int detectorCount;
+		private int barcodeCount;
+
+		/// Scratch space for number arrays, so arrays are only reallocated when their length changes. Grows to the longest array seen.
+		private double[] scratch = new double[32];
+
+		/**
+		 * @param families the target families to decode, everything else is skipped
+		 */
+		public ResultsDecoder(TargetFamily... families) {
+			for(TargetFamily family : families) this.families.add(family);
+		}
+
+		public LimelightResults decode(String json) {
+			long start = System.nanoTime();
+			final Results results = this.results.targetingResults;
+
+			// Anything this dump leaves out must not keep the previous frame's value
+			ResultsDecoder.clear(results);
+			this.retroCount = 0;
+			this.fiducialCount = 0;
+			this.classifierCount = 0;
+			this.detectorCount = 0;
+			this.barcodeCount = 0;
+
+			try(JsonParser parser = jsonFactory.createParser(json)) {
+				if(parser.nextToken() == JsonToken.START_OBJECT) {
+					while(parser.nextToken() == JsonToken.FIELD_NAME) {
+						final String name = parser.getCurrentName();
+						parser.nextToken();
+
+						if(name.equals("Results")) this.readResults(parser, results);
+						else parser.skipChildren();
+					}
+				}
+			} catch (IOException e) {
+				System.err.println("lljson error: " + e.getMessage());
+				results.valid = false;
+			}
+
+			results.targets_Retro = this.retro.view(this.retroCount);
+			results.targets_Fiducials = this.fiducials.view(this.fiducialCount);
+			results.targets_Classifier = this.classifier.view(this.classifierCount);
+			results.targets_Detector = this.detector.view(this.detectorCount);
+			results.targets_Barcode = this.barcode.view(this.barcodeCount);
+
+			long end = System.nanoTime();
+			double millis = (end - start) * .000001;
+			results.latency_jsonParse = millis;
+			if(profileJSON) {
+				System.out.printf("lljson: %.2f\r\n", millis);
+			}
+
+			return this.results;
+		}
+
+		private void readResults(JsonParser parser, Results results) throws IOException {
+			if(parser.currentToken() != JsonToken.START_OBJECT) {
+				parser.skipChildren();
+				return;
+			}
+
+			while(parser.nextToken() == JsonToken.FIELD_NAME) {
+				final String name = parser.getCurrentName();
+				parser.nextToken();
+
+				switch(name) {
+					case "pID": results.pipelineID = parser.getValueAsDouble(); break;
+					case "tl": results.latency_pipeline = parser.getValueAsDouble(); break;
+					case "cl": results.latency_capture = parser.getValueAsDouble(); break;
+					case "ts": results.timestamp_LIMELIGHT_publish = parser.getValueAsDouble(); break;
+					case "ts_rio": results.timestamp_RIOFPGA_capture = parser.getValueAsDouble(); break;
+					case "v": results.valid = parser.getValueAsDouble() != 0; break;
+					case "botpose": results.botpose = this.readArray(parser, results.botpose); break;
+					case "botpose_wpired": results.botpose_wpired = this.readArray(parser, results.botpose_wpired); break;
+					case "botpose_wpiblue": results.botpose_wpiblue = this.readArray(parser, results.botpose_wpiblue); break;
+					case "t6c_rs": results.camerapose_robotspace = this.readArray(parser, results.camerapose_robotspace); break;
+					case "Retro": this.retroCount = this.readTargets(parser, TargetFamily.Retro); break;
+					case "Fiducial": this.fiducialCount = this.readTargets(parser, TargetFamily.Fiducial); break;
+					case "Classifier": this.classifierCount = this.readTargets(parser, TargetFamily.Classifier); break;
+					case "Detector": this.detectorCount = this.readTargets(parser, TargetFamily.Detector); break;
+					case "Barcode": this.barcodeCount = this.readTargets(parser, TargetFamily.Barcode); break;
+					default: parser.skipChildren(); break;
+				}
+			}
+		}
+
+		private int readTargets(JsonParser parser, TargetFamily family) throws IOException {
+			if(parser.currentToken() != JsonToken.START_ARRAY || !this.families.contains(family)) {
+				parser.skipChildren();
+				return 0;
+			}
+
+			int count = 0;
+			while(parser.nextToken() != JsonToken.END_ARRAY) {
+				if(parser.currentToken() != JsonToken.START_OBJECT) {
+					parser.skipChildren();
+					continue;
+				}
+
+				switch(family) {
+					case Retro: this.readRetro(parser, this.retro.get(count)); break;
+					case Fiducial: this.readFiducial(parser, this.fiducials.get(count)); break;
+					case Classifier: this.readClassifier(parser, this.classifier.get(count)); break;
+					case Detector: this.readDetector(parser, this.detector.get(count)); break;
+					case Barcode: this.barcode.get(count); parser.skipChildren(); break;
+				}
+
+				count++;
+			}
+
+			return count;
+		}
+
+		private void readRetro(JsonParser parser, LimelightTarget_Retro target) throws IOException {
+			ResultsDecoder.clear(target.cameraPose_TargetSpace);
+			ResultsDecoder.clear(target.robotPose_FieldSpace);
+			ResultsDecoder.clear(target.robotPose_TargetSpace);
+			ResultsDecoder.clear(target.targetPose_CameraSpace);
+			ResultsDecoder.clear(target.targetPose_RobotSpace);
+			target.ta = target.tx = target.tx_pixels = target.ty = target.ty_pixels = target.ts = 0;
+
+			while(parser.nextToken() == JsonToken.FIELD_NAME) {
+				final String name = parser.getCurrentName();
+				parser.nextToken();
+
+				switch(name) {
+					case "t6c_ts": target.cameraPose_TargetSpace = this.readArray(parser, target.cameraPose_TargetSpace); break;
+					case "t6r_fs": target.robotPose_FieldSpace = this.readArray(parser, target.robotPose_FieldSpace); break;
+					case "t6r_ts": target.robotPose_TargetSpace = this.readArray(parser, target.robotPose_TargetSpace); break;
+					case "t6t_cs": target.targetPose_CameraSpace = this.readArray(parser, target.targetPose_CameraSpace); break;
+					case "t6t_rs": target.targetPose_RobotSpace = this.readArray(parser, target.targetPose_RobotSpace); break;
+					case "ta": target.ta = parser.getValueAsDouble(); break;
+					case "tx": target.tx = parser.getValueAsDouble(); break;
+					case "txp": target.tx_pixels = parser.getValueAsDouble(); break;
+					case "ty": target.ty = parser.getValueAsDouble(); break;
+					case "typ": target.ty_pixels = parser.getValueAsDouble(); break;
+					case "ts": target.ts = parser.getValueAsDouble(); break;
+					default: parser.skipChildren(); break;
+				}
+			}
+		}
+
+		private void readFiducial(JsonParser parser, LimelightTarget_Fiducial target) throws IOException {
+			ResultsDecoder.clear(target.cameraPose_TargetSpace);
+			ResultsDecoder.clear(target.robotPose_FieldSpace);
+			ResultsDecoder.clear(target.robotPose_TargetSpace);
+			ResultsDecoder.clear(target.targetPose_CameraSpace);
+			ResultsDecoder.clear(target.targetPose_RobotSpace);
+			target.fiducialID = target.ta = target.tx = target.tx_pixels = target.ty = target.ty_pixels = target.ts = 0;
+			boolean family = false;
+
+			while(parser.nextToken() == JsonToken.FIELD_NAME) {
+				final String name = parser.getCurrentName();
+				parser.nextToken();
+
+				switch(name) {
+					case "fID": target.fiducialID = parser.getValueAsDouble(); break;
+					case "fam": target.fiducialFamily = ResultsDecoder.readString(parser, target.fiducialFamily); family = true; break;
+					case "t6c_ts": target.cameraPose_TargetSpace = this.readArray(parser, target.cameraPose_TargetSpace); break;
+					case "t6r_fs": target.robotPose_FieldSpace = this.readArray(parser, target.robotPose_FieldSpace); break;
+					case "t6r_ts": target.robotPose_TargetSpace = this.readArray(parser, target.robotPose_TargetSpace); break;
+					case "t6t_cs": target.targetPose_CameraSpace = this.readArray(parser, target.targetPose_CameraSpace); break;
+					case "t6t_rs": target.targetPose_RobotSpace = this.readArray(parser, target.targetPose_RobotSpace); break;
+					case "ta": target.ta = parser.getValueAsDouble(); break;
+					case "tx": target.tx = parser.getValueAsDouble(); break;
+					case "txp": target.tx_pixels = parser.getValueAsDouble(); break;
+					case "ty": target.ty = parser.getValueAsDouble(); break;
+					case "typ": target.ty_pixels = parser.getValueAsDouble(); break;
+					case "ts": target.ts = parser.getValueAsDouble(); break;
+					default: parser.skipChildren(); break;
+				}
+			}
+
+			// Kept across frames only to avoid allocating, so it still has to go when the frame leaves it out
+			if(!family) target.fiducialFamily = null;
+		}
+
+		private void readClassifier(JsonParser parser, LimelightTarget_Classifier target) throws IOException {
+			target.classID = target.confidence = target.zone = target.tx = target.tx_pixels = target.ty = target.ty_pixels = 0;
+			boolean className = false;
+
+			while(parser.nextToken() == JsonToken.FIELD_NAME) {
+				final String name = parser.getCurrentName();
+				parser.nextToken();
+
+				switch(name) {
+					case "class": target.className = ResultsDecoder.readString(parser, target.className); className = true; break;
+					case "classID": target.classID = parser.getValueAsDouble(); break;
+					case "conf": target.confidence = parser.getValueAsDouble(); break;
+					case "zone": target.zone = parser.getValueAsDouble(); break;
+					case "tx": target.tx = parser.getValueAsDouble(); break;
+					case "txp": target.tx_pixels = parser.getValueAsDouble(); break;
+					case "ty": target.ty = parser.getValueAsDouble(); break;
+					case "typ": target.ty_pixels = parser.getValueAsDouble(); break;
+					default: parser.skipChildren(); break;
+				}
+			}
+
+			if(!className) target.className = null;
+		}
+
+		private void readDetector(JsonParser parser, LimelightTarget_Detector target) throws IOException {
+			target.classID = target.confidence = target.ta = target.tx = target.tx_pixels = target.ty = target.ty_pixels = 0;
+			boolean className = false;
+
+			while(parser.nextToken() == JsonToken.FIELD_NAME) {
+				final String name = parser.getCurrentName();
+				parser.nextToken();
+
+				switch(name) {
+					case "class": target.className = ResultsDecoder.readString(parser, target.className); className = true; break;
+					case "classID": target.classID = parser.getValueAsDouble(); break;
+					case "conf": target.confidence = parser.getValueAsDouble(); break;
+					case "ta": target.ta = parser.getValueAsDouble(); break;
+					case "tx": target.tx = parser.getValueAsDouble(); break;
+					case "txp": target.tx_pixels = parser.getValueAsDouble(); break;
+					case "ty": target.ty = parser.getValueAsDouble(); break;
+					case "typ": target.ty_pixels = parser.getValueAsDouble(); break;
+					default: parser.skipChildren(); break;
+				}
+			}
+
+			if(!className) target.className = null;
+		}
+
+		/// Resets everything a results dump may carry, keeping the arrays so they can be refilled
+		private static void clear(Results results) {
+			results.valid = false;
+			results.pipelineID = 0;
+			results.latency_pipeline = 0;
+			results.latency_capture = 0;
+			results.timestamp_LIMELIGHT_publish = 0;
+			results.timestamp_RIOFPGA_capture = 0;
+			ResultsDecoder.clear(results.botpose);
+			ResultsDecoder.clear(results.botpose_wpired);
+			ResultsDecoder.clear(results.botpose_wpiblue);
+			ResultsDecoder.clear(results.camerapose_robotspace);
+		}
+
+		private static void clear(double[] pose) {
+			if(pose != null) Arrays.fill(pose, 0);
+		}
+
+		/**
+		 * Reads a number array into `into`, only allocating a new array when the length changed
+		 */
+		private double[] readArray(JsonParser parser, double[] into) throws IOException {
+			if(parser.currentToken() != JsonToken.START_ARRAY) {
+				parser.skipChildren();
+				return into;
+			}
+
+			int length = 0;
+			while(parser.nextToken() != JsonToken.END_ARRAY) {
+				if(parser.currentToken().isStructStart()) {
+					parser.skipChildren();
+					continue;
+				}
+
+				if(length == this.scratch.length) this.scratch = Arrays.copyOf(this.scratch, length * 2);
+				this.scratch[length++] = parser.getValueAsDouble();
+			}
+
+			if(into == null || into.length != length) into = new double[length];
+			System.arraycopy(this.scratch, 0, into, 0, length);
+			return into;
+		}
+
+		/**
+		 * Reads a string, handing back `previous` instead of a new String when the text is unchanged
+		 */
+		private static String readString(JsonParser parser, String previous) throws IOException {
+			if(parser.currentToken() != JsonToken.VALUE_STRING) {
+				parser.skipChildren();
+				return previous;
+			}
+
+			final char[] chars = parser.getTextCharacters();
+			final int offset = parser.getTextOffset();
+			final int length = parser.getTextLength();
+
+			if(previous != null && previous.length() == length) {
+				boolean same = true;
+				for(int i = 0; i < length && same; i++) same = previous.charAt(i) == chars[offset + i];
+				if(same) return previous;
+			}
+
+			return new String(chars, offset, length);
+		}
+	}
+}
@@ -1,120 +1,498 @@
 package frc.robot.subsystems;
 
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
 
 import edu.wpi.first.hal.DriverStationJNI;
+import edu.wpi.first.networktables.NetworkTableInstance;
+import edu.wpi.first.networktables.PubSubOption;
+import edu.wpi.first.networktables.StringPublisher;
 import edu.wpi.first.wpilibj.DriverStation;
-import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
+import edu.wpi.first.wpilibj.RobotBase;
 import edu.wpi.first.wpilibj2.command.SubsystemBase;
 
+/**
+ * The system log, mirrored to stderr, a file per boot, and `SmartDashboard/SystemLog`. Long boots
+ * carry on in new files, and the oldest files are deleted to stay within `budgetBytes`.
+ *
+ * Writing only formats the message into a queue slot, so logging from the main loop never waits
+ * on the console, the disk or the network. A background thread drains the queue every
+ * `drainPeriodMs`. The queue is a fixed ring of `queueCapacity` preallocated character slots
+ * that writers claim without locking; when it is full the oldest message is dropped and counted
+ * rather than blocking the caller. If that oldest message is itself still being written, the new one
+ * is dropped and counted instead once the writer has spun `claimSpins` times. Any thread may write.
+ *
+ * The `event` overloads format a tag and numbers straight into a slot, so they allocate nothing
+ * and are safe to call from commands every loop. The `write` family takes any objects, at the
+ * cost of boxing and building a string.
+ *
+ * Lines are kept in a fixed ring of `lineLimit` slots, so the oldest line is dropped by
+ * overwriting its slot rather than by shifting the whole buffer. Each finished line is sent
+ * once through a topic that keeps every value, so nothing is published while nothing is logged.
+ */
 public final class Log extends SubsystemBase {
-	private static Log instance;
+	// Package-private so tests can install a log without its writer thread
+	static Log instance;
 
-	/// The maximum number of lines the buffer should contain at any given moment
-	///
-	/// Note that `writelnFast` will bypass this, so ensure you call
-	/// `trimExcessLeadingLines` after using `writelnFast`
-	public static int lineLimit = Integer.MAX_VALUE;
-	private int lines = 0;
-	private StringBuilder log = new StringBuilder(1024);
-	private boolean dirty = false;
+	/// The number of lines the buffer keeps, set this before `start`
+	public static int lineLimit = 50;
 
-	private Log() {}
+	/// The most messages waiting on the writer thread, rounded up to a power of two, set this before `start`
+	public static int queueCapacity = 1024;
+
+	/// The longest message an `event` can write, longer ones are cut off, set this before `start`
+	public static int messageLength = 256;
+
+	/// How many times a writer waits on a full queue whose oldest message is still being written before dropping its own
+	public static int claimSpins = 1000;
+
+	/// Digits written after the decimal point by `event`
+	public static final int eventDecimals = 3;
+
+	/// How long the writer thread sleeps between drains
+	public static long drainPeriodMs = 20;
+
+	/// Where the log file for each boot is written
+	public static String directory = RobotBase.isReal() ? "/home/lvuser/logs" : "logs";
+
+	/// The log carries on in a new file once the current one holds this many characters
+	public static long maxFileChars = 4L << 20;
+
+	/// The oldest log files are deleted to keep every log in `directory` within this many bytes
+	public static long budgetBytes = 32L << 20;
+
+	/**
+	 * A queued message, written in place by whoever claims it.
+	 *
+	 * `sequence` says whose turn the slot is: it equals the write position of the writer that may
+	 * claim it next, or that position plus one once the message is ready to be read.
+	 */
+	private static final class Slot {
+		private final AtomicLong sequence;
+		private final char[] chars;
+		private int length;
+		private long position;
+
+		// Messages from `write` that do not fit in `chars` are carried as is
+		private String overflow;
+
+		private Slot(long sequence, int length) {
+			this.sequence = new AtomicLong(sequence);
+			this.chars = new char[length];
+		}
+
+		// The last char is always left for the newline from `end`, so a cut off event still ends its line
+		private void put(char c) {
+			if(this.length < this.chars.length - 1) this.chars[this.length++] = c;
+		}
+
+		private void end() {
+			this.chars[this.length++] = '\n';
+		}
+
+		private void put(String str) {
+			for(int i = 0; i < str.length(); i++) this.put(str.charAt(i));
+		}
+
+		private void put(double value) {
+			if(Double.isNaN(value)) {
+				this.put("NaN");
+				return;
+			}
+
+			if(value < 0) {
+				this.put('-');
+				value = -value;
+			}
+
+			// Out of range for fixed point, rare enough to allocate for
+			if(value >= 1e15) {
+				this.put(Double.toString(value));
+				return;
+			}
+
+			final long scale = Log.pow10(Log.eventDecimals);
+			final long fixed = Math.round(value * scale);
+
+			this.putDigits(fixed / scale, 1);
+			this.put('.');
+			this.putDigits(fixed % scale, Log.eventDecimals);
+		}
+
+		/// Writes a non-negative number, padded with zeros to at least `digits` digits
+		private void putDigits(long value, int digits) {
+			if(value >= 10 || digits > 1) this.putDigits(value / 10, digits - 1);
+			this.put((char)('0' + value % 10));
+		}
+
+		private String read() {
+			return this.overflow != null ? this.overflow : new String(this.chars, 0, this.length);
+		}
+	}
+
+	private final Slot[] slots;
+	private final int mask;
+	private final AtomicLong writePosition = new AtomicLong();
+	private final AtomicLong readPosition = new AtomicLong();
+	private final AtomicLong dropped = new AtomicLong();
+
+	// Everything below is only touched while draining, which is synchronized
+
+	// Finished lines, line `n` (counting from the first ever written) lives in slot `n % lineLimit`
+	private final String[] lines;
+	private long written = 0;
+	private long published = 0;
+
+	// The line being written, until its newline arrives
+	private final StringBuilder partial = new StringBuilder(256);
+
+	private final StringPublisher publisher = NetworkTableInstance.getDefault()
+		.getTable("SmartDashboard")
+		.getStringTopic("SystemLog")
+		.publish(PubSubOption.sendAll(true));
+
+	private Writer file;
+	private long fileChars;
+
+	Log(int lineLimit, int queueCapacity, int messageLength) {
+		this.lines = new String[lineLimit];
+
+		final int size = Integer.highestOneBit(Math.max(queueCapacity - 1, 1)) << 1;
+		this.slots = new Slot[size];
+		this.mask = size - 1;
+		for(int i = 0; i < size; i++) this.slots[i] = new Slot(i, messageLength);
+	}
 
 	/// Starts the log, you should never need to use this, save for
 	/// the first line of the `main` function
 	public static void start() throws Exception {
-		Log.instance = new Log();
+		Log.instance = new Log(Log.lineLimit, Log.queueCapacity, Log.messageLength);
+
+		final Thread writer = new Thread(Log.instance::run, "Log");
+		writer.setDaemon(true);
+		writer.start();
 	}
 
-	/// Writes data to stderr, writes it to the buffer, and dirties
-	/// the network entry.
+	/// Queues data for stderr and the buffer
 	public static void write(Object... input) {
 		Log.writeFast(input);
-		Log.trimExcessLeadingLines();
 	}
 
-	/// Writes a line to stderr, writes it to the buffer, trims old
-	/// leading lines, and dirties the network entry.
-	public static void writeln(Object... input) { Log.write(input, '\n'); }
+	/// Queues a line for stderr and the buffer
+	public static void writeln(Object... input) {
+		final StringBuilder message = new StringBuilder();
+		Log.format(message, input);
+		Log.writeFast(message.append('\n').toString());
+	}
 
-	/// Writes to the buffer, does NOT trim any old leading lines, and
-	/// dirties the network entry.
-	/// Use this to buffer many line calls together before calling
-	/// `trimExcessLeadingLines` or `writeln`
+	/// Queues data for stderr and the buffer, the same as `write`
 	public static void writeFast(Object... input) {
-		for(Object entry : input) {
-			if(entry.getClass().isArray()) {
-				Object[] array;
+		final StringBuilder message = new StringBuilder();
+		Log.format(message, input);
+		Log.writeFast(message.toString());
+	}
 
-				if(entry instanceof int[]) array = Arrays.stream((int[])entry).boxed().toArray(Integer[]::new);
-				else if(entry instanceof long[]) array = Arrays.stream((long[])entry).boxed().toArray(Long[]::new);
-				else if(entry instanceof double[]) array = Arrays.stream((double[])entry).boxed().toArray(Double[]::new);
-				else array = (Object[])entry;
+	public static void writeFast(String str) {
+		final Log log = Log.instance;
+		final Slot slot = log.claim();
+		if(slot == null) return;
 
-				Log.writeFast(array);
-			} else {
-				Log.writeFast(entry.toString());
-			}
+		if(str.length() <= slot.chars.length) {
+			str.getChars(0, str.length(), slot.chars, 0);
+			slot.length = str.length();
+		} else {
+			slot.overflow = str;
 		}
+
+		log.commit(slot);
 	}
 
-	public static void writeFast(String str) {
-		System.err.print(str);
+	/// Queues a line for stderr and the buffer, the same as `writeln`
+	public static void writelnFast(Object... input) { Log.writeln(input); }
+
+	/// Queues the line `[tag]` without allocating
+	public static void event(String tag) {
+		final Log log = Log.instance;
+		final Slot slot = log.claimEvent(tag);
+		if(slot == null) return;
+
+		slot.end();
+		log.commit(slot);
+	}
+
+	/// Queues the line `[tag] a` without allocating
+	public static void event(String tag, double a) {
+		final Log log = Log.instance;
+		final Slot slot = log.claimEvent(tag);
+		if(slot == null) return;
+
+		slot.put(' ');
+		slot.put(a);
+		slot.end();
+		log.commit(slot);
+	}
+
+	/// Queues the line `[tag] a b` without allocating
+	public static void event(String tag, double a, double b) {
+		final Log log = Log.instance;
+		final Slot slot = log.claimEvent(tag);
+		if(slot == null) return;
+
+		slot.put(' ');
+		slot.put(a);
+		slot.put(' ');
+		slot.put(b);
+		slot.end();
+		log.commit(slot);
+	}
 
-		Log.instance.log.append(str);
-		Log.instance.lines += str.lines().count();
-		Log.instance.dirty = true;
+	/// Queues the line `[tag] a b c` without allocating
+	public static void event(String tag, double a, double b, double c) {
+		final Log log = Log.instance;
+		final Slot slot = log.claimEvent(tag);
+		if(slot == null) return;
+
+		slot.put(' ');
+		slot.put(a);
+		slot.put(' ');
+		slot.put(b);
+		slot.put(' ');
+		slot.put(c);
+		slot.end();
+		log.commit(slot);
+	}
+
+	/// How many messages have been dropped because the writer thread fell behind
+	public static long dropped() {
+		return Log.instance.dropped.get();
 	}
 
-	/// Writes to the buffer, does NOT trim any old leading lines, and
-	/// dirties the network entry.
-	/// Use this to buffer many line calls together before calling
-	/// `trimExcessLeadingLines` or `writeln`
-	public static void writelnFast(Object... input) { Log.writeFast(input, '\n'); }
+	/// Writes everything queued so far before returning
+	public static void flush() {
+		Log.instance.drain();
+	}
 
-	/// Writes a fatal error to the buffer, trims old leading lines, dirties the network entry, transmits the error to the driver station with a full stack trace, and aborts
+	/// Writes a fatal error to the buffer, transmits the error to the driver station with a full stack trace, and aborts
 	public static void fatal(Exception error) {
 		DriverStation.reportError(error.getLocalizedMessage(), error.getStackTrace());
 		Log.writeln("! ERROR !", '\n', error.getLocalizedMessage(), '\n');
+		Log.flush();
 		System.exit(1);
 	}
 
-	/// Writes an error to the buffer, trims old leading lines, dirties the network entry, and transmits the error to the driver station with a full stack trace
+	/// Writes an error to the buffer and transmits the error to the driver station with a full stack trace
 	public static void error(Exception error) {
 		DriverStation.reportError(error.getLocalizedMessage(), error.getStackTrace());
 		Log.writeln("! ERROR !", '\n', error.getLocalizedMessage(), '\n');
 	}
 
-	/// Writes a warning to the buffer, trims old leading lines, dirties the network entry, and transmits the warning to the driver station without a stack trace
+	/// Writes a warning to the buffer and transmits the warning to the driver station without a stack trace
 	public static void warning(String str) {
 		DriverStationJNI.sendError(false, 0, false, str, "", "", true);
 	}
 
-	/// Writes a warning to the buffer, trims old leading lines, dirties the network entry, and transmits the warning to the driver station with a full stack trace
+	/// Writes a warning to the buffer and transmits the warning to the driver station with a full stack trace
 	public static void warningFull(String warning) {
 		DriverStation.reportWarning(warning, Thread.currentThread().getStackTrace());
 		Log.writeln("Δ WARNING Δ\n", warning, '\n');
 	}
 
-	/// Trims as many leading lines is necessary so that the buffer contains less
-	/// than `lineLimit` lines long
-	public static void trimExcessLeadingLines() {
-		while(Log.instance.lines > Log.lineLimit) Log.instance.trimSingleLine();
+	// Messages are formatted whole on the caller's thread, so writes from different threads never interleave
+	private static void format(StringBuilder message, Object[] input) {
+		for(Object entry : input) {
+			if(entry.getClass().isArray()) {
+				Object[] array;
+
+				if(entry instanceof int[]) array = Arrays.stream((int[])entry).boxed().toArray(Integer[]::new);
+				else if(entry instanceof long[]) array = Arrays.stream((long[])entry).boxed().toArray(Long[]::new);
+				else if(entry instanceof double[]) array = Arrays.stream((double[])entry).boxed().toArray(Double[]::new);
+				else array = (Object[])entry;
+
+				Log.format(message, array);
+			} else {
+				message.append(entry);
+			}
+		}
+	}
+
+	private static long pow10(int exponent) {
+		long value = 1;
+		for(int i = 0; i < exponent; i++) value *= 10;
+		return value;
+	}
+
+	private Slot claimEvent(String tag) {
+		final Slot slot = this.claim();
+		if(slot == null) return null;
+
+		slot.put('[');
+		slot.put(tag);
+		slot.put(']');
+		return slot;
+	}
+
+	/// Claims the next slot for writing, dropping the oldest message if the queue is full, or returns null having dropped this one
+	private Slot claim() {
+		long position = this.writePosition.get();
+		int spins = 0;
+
+		while(true) {
+			final Slot slot = this.slots[(int)(position & this.mask)];
+			final long difference = slot.sequence.get() - position;
+
+			if(difference == 0) {
+				if(this.writePosition.compareAndSet(position, position + 1)) {
+					slot.position = position;
+					slot.length = 0;
+					return slot;
+				}
+			} else if(difference < 0) {
+				// Still holding a message from a lap ago, so the queue is full
+				final Slot oldest = this.poll();
+				if(oldest != null) {
+					this.release(oldest);
+					this.dropped.incrementAndGet();
+				} else if(++spins > Log.claimSpins) {
+					// The oldest message is still being written, perhaps by a thread that was preempted, so give up rather than stall
+					this.dropped.incrementAndGet();
+					return null;
+				} else {
+					// The oldest message is still being written, wait for it
+					Thread.onSpinWait();
+				}
+			}
+
+			position = this.writePosition.get();
+		}
+	}
+
+	/// Hands a written slot to the reader
+	private void commit(Slot slot) {
+		slot.sequence.set(slot.position + 1);
+	}
+
+	/// Claims the oldest finished message for reading, or null if there is none
+	private Slot poll() {
+		long position = this.readPosition.get();
+
+		while(true) {
+			final Slot slot = this.slots[(int)(position & this.mask)];
+			final long difference = slot.sequence.get() - (position + 1);
+
+			if(difference == 0) {
+				if(this.readPosition.compareAndSet(position, position + 1)) {
+					slot.position = position;
+					return slot;
+				}
+			} else if(difference < 0) {
+				return null;
+			}
+
+			position = this.readPosition.get();
+		}
+	}
+
+	/// Hands a read slot back to writers for the next lap
+	private void release(Slot slot) {
+		slot.overflow = null;
+		slot.sequence.set(slot.position + this.slots.length);
+	}
+
+	private void run() {
+		this.openFile();
+
+		while(true) {
+			this.drain();
+
+			try {
+				Thread.sleep(Log.drainPeriodMs);
+			} catch(InterruptedException e) {
+				this.drain();
+				return;
+			}
+		}
+	}
+
+	/// Starts the next log file, first deleting the oldest ones to leave room for it to fill up
+	private void openFile() {
+		try {
+			final Path directory = Paths.get(Log.directory);
+			final Path file = directory.resolve("log-" + System.currentTimeMillis() + ".txt");
+			Files.createDirectories(directory);
+			this.file = Files.newBufferedWriter(file);
+			this.fileChars = 0;
+
+			Retention.prune(directory, "log-", Log.budgetBytes - Log.maxFileChars, file);
+		} catch(IOException e) {
+			System.err.println("[Log] Could not open a log file: " + e.getLocalizedMessage());
+		}
+	}
+
+	/// Takes the oldest queued message off the queue, or returns null once it is empty
+	String take() {
+		final Slot slot = this.poll();
+		if(slot == null) return null;
+
+		final String str = slot.read();
+		this.release(slot);
+		return str;
 	}
 
-	/// Unconditionally trims a single line off the front
-	private void trimSingleLine() {
-		this.log.delete(0, Math.max(this.log.indexOf("\n") + 1, 0));
-		this.lines--;
-		this.dirty = true;
+	private synchronized void drain() {
+		for(String str = this.take(); str != null; str = this.take()) {
+			System.err.print(str);
+			this.writeFile(str);
+
+			int start = 0;
+			for(int end = str.indexOf('\n'); end != -1; end = str.indexOf('\n', start)) {
+				this.partial.append(str, start, end);
+				this.commitLine();
+				start = end + 1;
+			}
+			this.partial.append(str, start, str.length());
+		}
+
+		// Lines that have already been overwritten in the ring are skipped, they still went to stderr and the file
+		final long first = Math.max(this.published, this.written - this.lines.length);
+		for(long line = first; line < this.written; line++) {
+			this.publisher.set(this.lines[(int)(line % this.lines.length)]);
+		}
+		this.published = this.written;
+
+		this.writeFile(null);
 	}
 
-	@Override
-	public void periodic() {
-		if(this.dirty || true) {
-			SmartDashboard.putString("SystemLog", this.log.toString());
-			this.dirty = false;
+	/// Appends to the log file, or flushes it when `str` is null and moves on to a new one once it is full, giving up on the file if it fails
+	private void writeFile(String str) {
+		if(this.file == null) return;
+
+		try {
+			if(str != null) {
+				this.file.write(str);
+				this.fileChars += str.length();
+			} else {
+				this.file.flush();
+
+				if(this.fileChars >= Log.maxFileChars) {
+					this.file.close();
+					this.openFile();
+				}
+			}
+		} catch(IOException e) {
+			System.err.println("[Log] Could not write the log file: " + e.getLocalizedMessage());
+			this.file = null;
 		}
 	}
+
+	/// Moves the line being written into the ring, overwriting the oldest line once it is full
+	private void commitLine() {
+		this.lines[(int)(this.written % this.lines.length)] = this.partial.toString();
+		this.partial.setLength(0);
+		this.written++;
+	}
 }
@@ -0,0 +1,161 @@
+package frc.robot.subsystems;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+
+import edu.wpi.first.wpilibj2.command.Command;
+import edu.wpi.first.wpilibj2.command.CommandScheduler;
+
+/**
+ * Times every subsystem `periodic()`, every scheduled command's `execute()`, and the telemetry
+ * and log flushes, so we can see what is eating the 20ms loop budget.
+ *
+ * Each timed section keeps a rolling window of its last samples in a preallocated array.
+ * Once a second the windows are summarized into min, mean, p99 and max in milliseconds, which
+ * are published through {@link Telemetry} at the slow rate under `Profile/<name>/`.
+ * Commands are summarized by name, so every instance of a command shares one section.
+ * Nothing here allocates once a section exists.
+ */
+public final class LoopProfiler {
+	/// Samples kept per section, about 5 seconds of loops
+	public static final int window = 256;
+
+	/// Loops between summaries, once a second at 50Hz
+	public static final int summaryLoops = 50;
+
+	/// Rolling timing statistics for one section of the loop
+	public static final class Stats {
+		private final String name;
+
+		private final long[] samples = new long[LoopProfiler.window];
+		private final long[] sorted = new long[LoopProfiler.window];
+		private int count;
+		private int next;
+
+		// Latest summary, in milliseconds
+		private double min;
+		private double mean;
+		private double p99;
+		private double max;
+
+		private Stats(String name) {
+			this.name = name;
+		}
+
+		public void record(long nanos) {
+			this.samples[this.next] = nanos;
+			this.next = (this.next + 1) % this.samples.length;
+			if(this.count < this.samples.length) this.count++;
+		}
+
+		private void summarize() {
+			if(this.count == 0) return;
+
+			System.arraycopy(this.samples, 0, this.sorted, 0, this.count);
+			Arrays.sort(this.sorted, 0, this.count);
+
+			long sum = 0;
+			for(int i = 0; i < this.count; i++) sum += this.sorted[i];
+
+			this.min = this.sorted[0] / 1e6;
+			this.mean = sum / (double)this.count / 1e6;
+			this.p99 = this.sorted[(int)Math.ceil(this.count * 0.99) - 1] / 1e6;
+			this.max = this.sorted[this.count - 1] / 1e6;
+		}
+
+		private void track() {
+			final String prefix = "Profile/" + this.name + "/";
+
+			Telemetry.track(prefix + "Min", () -> this.min, Telemetry.Rate.Slow);
+			Telemetry.track(prefix + "Mean", () -> this.mean, Telemetry.Rate.Slow);
+			Telemetry.track(prefix + "P99", () -> this.p99, Telemetry.Rate.Slow);
+			Telemetry.track(prefix + "Max", () -> this.max, Telemetry.Rate.Slow);
+		}
+	}
+
+	/// A timed region of code, create once and call `start`/`stop` around it every loop
+	public static final class Section {
+		public final Stats stats;
+		private long start;
+
+		private Section(Stats stats) {
+			this.stats = stats;
+		}
+
+		public void start() {
+			this.start = System.nanoTime();
+		}
+
+		public void stop() {
+			final long now = System.nanoTime();
+
+			this.stats.record(now - this.start);
+			LoopProfiler.lastMark = now;
+		}
+	}
+
+	private static final ArrayList<Stats> stats = new ArrayList<>();
+	// By name, so commands built at runtime share one entry instead of adding a new one per instance
+	private static final HashMap<String, Stats> commands = new HashMap<>();
+
+	// Telemetry is not always up yet when the first sections are made, see start()
+	private static boolean started;
+
+	// End of the last timed section or command, each command is timed from here
+	private static long lastMark;
+	private static int loops;
+
+	private LoopProfiler() {}
+
+	public static Section section(String name) {
+		return new Section(LoopProfiler.stats(name));
+	}
+
+	/**
+	 * Publishes every section made so far and starts timing commands. Call once from `robotInit`.
+	 *
+	 * The scheduler only reports when each `execute()` has finished, so a command is timed from
+	 * the end of whatever was timed before it. The first command each loop therefore also
+	 * carries the scheduler's trigger polling.
+	 */
+	public static void start() {
+		LoopProfiler.started = true;
+		for(final Stats stats : LoopProfiler.stats) stats.track();
+
+		CommandScheduler.getInstance().onCommandExecute(LoopProfiler::commandExecuted);
+	}
+
+	/// Summarizes every section once a second. Call at the end of every loop.
+	public static void update() {
+		if(++LoopProfiler.loops < LoopProfiler.summaryLoops) return;
+		LoopProfiler.loops = 0;
+
+		for(int i = 0; i < LoopProfiler.stats.size(); i++) {
+			LoopProfiler.stats.get(i).summarize();
+		}
+	}
+
+	private static void commandExecuted(Command command) {
+		final long now = System.nanoTime();
+
+		final String name = command.getName();
+		Stats stats = LoopProfiler.commands.get(name);
+		if(stats == null) {
+			stats = LoopProfiler.stats("Command " + name);
+			LoopProfiler.commands.put(name, stats);
+		}
+
+		stats.record(now - LoopProfiler.lastMark);
+		LoopProfiler.lastMark = now;
+	}
+
+	private static Stats stats(String name) {
+		final Stats stats = new Stats(name);
+		LoopProfiler.stats.add(stats);
+
+		if(LoopProfiler.started) stats.track();
+
+		return stats;
+	}
+}
@@ -0,0 +1,278 @@
+package frc.robot.subsystems;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.ctre.phoenix.ErrorCode;
+import com.ctre.phoenix.ParamEnum;
+import com.ctre.phoenix.motorcontrol.FeedbackDevice;
+import com.ctre.phoenix.motorcontrol.NeutralMode;
+import com.ctre.phoenix.motorcontrol.SupplyCurrentLimitConfiguration;
+import com.ctre.phoenix.motorcontrol.can.BaseTalon;
+import com.ctre.phoenix.motorcontrol.can.BaseTalonConfiguration;
+import com.ctre.phoenix.motorcontrol.can.TalonFX;
+import com.ctre.phoenix.motorcontrol.can.TalonFXConfiguration;
+import com.ctre.phoenix.motorcontrol.can.TalonSRX;
+import com.ctre.phoenix.motorcontrol.can.TalonSRXConfiguration;
+
+import frc.robot.Constants.Gains;
+
+/**
+ * Every persistent Talon setting the robot relies on, declared once in {@link frc.robot.Constants}.
+ *
+ * Instances never change, each `with` method returns a copy. {@link #apply} reads the device
+ * back first and only writes the settings that differ, so a Talon that kept its settings
+ * through a code restart costs a readback instead of a full rewrite.
+ *
+ * Settings not covered here are left as they are on the device.
+ */
+public final class MotorConfig {
+	// Defaults are what every mechanism on the robot shares
+	double voltageCompSaturation = 10;
+
+	double nominalOutputForward = 0;
+	double nominalOutputReverse = 0;
+	double peakOutputForward = 1;
+	double peakOutputReverse = -1;
+
+	double openLoopRamp = 0.1;
+
+	// Setting deadband(area required to start moving the motor) to 1%
+	double neutralDeadband = 0.01;
+
+	NeutralMode neutralMode = NeutralMode.Brake;
+
+	/**
+	 * Setting input side current limit (amps)
+	 * 45 continious, 80 peak, 30 millieseconds allowed at peak
+	 * 40 amp breaker can support above 40 amps for a little bit
+	 * Falcons have insane acceleration so allowing it to reach 80 for 0.03 seconds
+	 * should be fine
+	 */
+	boolean supplyCurrentLimitEnabled = true;
+	double supplyCurrentLimit = 40;
+	double supplyCurrentTrigger = 55;
+	double supplyCurrentTriggerTime = 20;
+
+	FeedbackDevice feedbackDevice = FeedbackDevice.IntegratedSensor;
+
+	// Slot 0 closed loop gains, left alone when null
+	Gains gains;
+
+	/// Total settings written by every {@link #apply} so far, for telemetry
+	static final AtomicInteger writes = new AtomicInteger();
+
+	private MotorConfig copy() {
+		final MotorConfig copy = new MotorConfig();
+		copy.voltageCompSaturation = this.voltageCompSaturation;
+		copy.nominalOutputForward = this.nominalOutputForward;
+		copy.nominalOutputReverse = this.nominalOutputReverse;
+		copy.peakOutputForward = this.peakOutputForward;
+		copy.peakOutputReverse = this.peakOutputReverse;
+		copy.openLoopRamp = this.openLoopRamp;
+		copy.neutralDeadband = this.neutralDeadband;
+		copy.neutralMode = this.neutralMode;
+		copy.supplyCurrentLimitEnabled = this.supplyCurrentLimitEnabled;
+		copy.supplyCurrentLimit = this.supplyCurrentLimit;
+		copy.supplyCurrentTrigger = this.supplyCurrentTrigger;
+		copy.supplyCurrentTriggerTime = this.supplyCurrentTriggerTime;
+		copy.feedbackDevice = this.feedbackDevice;
+		copy.gains = this.gains;
+		return copy;
+	}
+
+	public MotorConfig withOpenLoopRamp(double seconds) {
+		final MotorConfig copy = this.copy();
+		copy.openLoopRamp = seconds;
+		return copy;
+	}
+
+	public MotorConfig withNeutralDeadband(double deadband) {
+		final MotorConfig copy = this.copy();
+		copy.neutralDeadband = deadband;
+		return copy;
+	}
+
+	public MotorConfig withPeakOutput(double forward, double reverse) {
+		final MotorConfig copy = this.copy();
+		copy.peakOutputForward = forward;
+		copy.peakOutputReverse = reverse;
+		return copy;
+	}
+
+	public MotorConfig withNeutralMode(NeutralMode mode) {
+		final MotorConfig copy = this.copy();
+		copy.neutralMode = mode;
+		return copy;
+	}
+
+	public MotorConfig withSupplyCurrentLimit(boolean enabled, double limit, double trigger, double triggerTime) {
+		final MotorConfig copy = this.copy();
+		copy.supplyCurrentLimitEnabled = enabled;
+		copy.supplyCurrentLimit = limit;
+		copy.supplyCurrentTrigger = trigger;
+		copy.supplyCurrentTriggerTime = triggerTime;
+		return copy;
+	}
+
+	public MotorConfig withFeedbackDevice(FeedbackDevice device) {
+		final MotorConfig copy = this.copy();
+		copy.feedbackDevice = device;
+		return copy;
+	}
+
+	public MotorConfig withGains(Gains gains) {
+		final MotorConfig copy = this.copy();
+		copy.gains = gains;
+		return copy;
+	}
+
+	/**
+	 * Reads `talon` back and writes every setting that differs from this config.
+	 * If the readback fails everything is written.
+	 *
+	 * @return the first error the device reported, or `OK`
+	 */
+	public ErrorCode apply(BaseTalon talon, int timeoutMs) {
+		final BaseTalonConfiguration current = MotorConfig.read(talon, timeoutMs);
+		final boolean all = current == null;
+
+		ErrorCode error = ErrorCode.OK;
+		int writes = 0;
+
+		if(all || !DeviceConfigurator.matches(current.voltageCompSaturation, this.voltageCompSaturation)) {
+			error = MotorConfig.first(error, talon.configVoltageCompSaturation(this.voltageCompSaturation, timeoutMs));
+			writes++;
+		}
+		if(all || !DeviceConfigurator.matches(current.nominalOutputForward, this.nominalOutputForward)) {
+			error = MotorConfig.first(error, talon.configNominalOutputForward(this.nominalOutputForward, timeoutMs));
+			writes++;
+		}
+		if(all || !DeviceConfigurator.matches(current.nominalOutputReverse, this.nominalOutputReverse)) {
+			error = MotorConfig.first(error, talon.configNominalOutputReverse(this.nominalOutputReverse, timeoutMs));
+			writes++;
+		}
+		if(all || !DeviceConfigurator.matches(current.peakOutputForward, this.peakOutputForward)) {
+			error = MotorConfig.first(error, talon.configPeakOutputForward(this.peakOutputForward, timeoutMs));
+			writes++;
+		}
+		if(all || !DeviceConfigurator.matches(current.peakOutputReverse, this.peakOutputReverse)) {
+			error = MotorConfig.first(error, talon.configPeakOutputReverse(this.peakOutputReverse, timeoutMs));
+			writes++;
+		}
+		if(all || !DeviceConfigurator.matches(current.openloopRamp, this.openLoopRamp)) {
+			error = MotorConfig.first(error, talon.configOpenloopRamp(this.openLoopRamp, timeoutMs));
+			writes++;
+		}
+		if(all || !DeviceConfigurator.matches(current.neutralDeadband, this.neutralDeadband)) {
+			error = MotorConfig.first(error, talon.configNeutralDeadband(this.neutralDeadband, timeoutMs));
+			writes++;
+		}
+		if(all || !this.currentLimitMatches(current)) {
+			error = MotorConfig.first(error, talon.configSupplyCurrentLimit(new SupplyCurrentLimitConfiguration(
+				this.supplyCurrentLimitEnabled,
+				this.supplyCurrentLimit,
+				this.supplyCurrentTrigger,
+				this.supplyCurrentTriggerTime
+			), timeoutMs));
+			writes++;
+		}
+		if(all || !this.feedbackDeviceMatches(talon, timeoutMs)) {
+			error = MotorConfig.first(error, talon.configSelectedFeedbackSensor(this.feedbackDevice, 0, timeoutMs));
+			writes++;
+		}
+		if(this.gains != null) {
+			if(all || !DeviceConfigurator.gainMatches(current.slot0.kP, this.gains.P)) {
+				error = MotorConfig.first(error, talon.config_kP(0, this.gains.P, timeoutMs));
+				writes++;
+			}
+			if(all || !DeviceConfigurator.gainMatches(current.slot0.kI, this.gains.I)) {
+				error = MotorConfig.first(error, talon.config_kI(0, this.gains.I, timeoutMs));
+				writes++;
+			}
+			if(all || !DeviceConfigurator.gainMatches(current.slot0.kD, this.gains.D)) {
+				error = MotorConfig.first(error, talon.config_kD(0, this.gains.D, timeoutMs));
+				writes++;
+			}
+			if(all || !DeviceConfigurator.gainMatches(current.slot0.kF, this.gains.F)) {
+				error = MotorConfig.first(error, talon.config_kF(0, this.gains.F, timeoutMs));
+				writes++;
+			}
+			if(all || !DeviceConfigurator.matches(current.slot0.integralZone, this.gains.iZone)) {
+				error = MotorConfig.first(error, talon.config_IntegralZone(0, this.gains.iZone, timeoutMs));
+				writes++;
+			}
+			if(all || !DeviceConfigurator.matches(current.slot0.closedLoopPeakOutput, this.gains.peakOutput)) {
+				error = MotorConfig.first(error, talon.configClosedLoopPeakOutput(0, this.gains.peakOutput, timeoutMs));
+				writes++;
+			}
+		}
+
+		MotorConfig.writes.addAndGet(writes);
+
+		// Neither of these are stored on the device, so they are always sent
+		talon.enableVoltageCompensation(true);
+		talon.setNeutralMode(this.neutralMode);
+
+		return error;
+	}
+
+	/// Reads `talon` back and returns whether it holds every setting {@link #apply} writes
+	public boolean verify(BaseTalon talon, int timeoutMs) {
+		final BaseTalonConfiguration current = MotorConfig.read(talon, timeoutMs);
+		if(current == null) return false;
+
+		return DeviceConfigurator.matches(current.voltageCompSaturation, this.voltageCompSaturation)
+			&& DeviceConfigurator.matches(current.nominalOutputForward, this.nominalOutputForward)
+			&& DeviceConfigurator.matches(current.nominalOutputReverse, this.nominalOutputReverse)
+			&& DeviceConfigurator.matches(current.peakOutputForward, this.peakOutputForward)
+			&& DeviceConfigurator.matches(current.peakOutputReverse, this.peakOutputReverse)
+			&& DeviceConfigurator.matches(current.openloopRamp, this.openLoopRamp)
+			&& DeviceConfigurator.matches(current.neutralDeadband, this.neutralDeadband)
+			&& this.currentLimitMatches(current)
+			&& this.feedbackDeviceMatches(talon, timeoutMs)
+			&& (this.gains == null || (
+				DeviceConfigurator.gainMatches(current.slot0.kP, this.gains.P)
+					&& DeviceConfigurator.gainMatches(current.slot0.kI, this.gains.I)
+					&& DeviceConfigurator.gainMatches(current.slot0.kD, this.gains.D)
+					&& DeviceConfigurator.gainMatches(current.slot0.kF, this.gains.F)
+					&& DeviceConfigurator.matches(current.slot0.integralZone, this.gains.iZone)
+					&& DeviceConfigurator.matches(current.slot0.closedLoopPeakOutput, this.gains.peakOutput)
+			));
+	}
+
+	// The configuration readback reports the sensor per Talon type, the raw parameter compares the same way for both
+	private boolean feedbackDeviceMatches(BaseTalon talon, int timeoutMs) {
+		return talon.configGetParameter(ParamEnum.eFeedbackSensorType, 0, timeoutMs) == this.feedbackDevice.value;
+	}
+
+	private boolean currentLimitMatches(BaseTalonConfiguration current) {
+		if(current instanceof TalonFXConfiguration) {
+			final SupplyCurrentLimitConfiguration limit = ((TalonFXConfiguration)current).supplyCurrLimit;
+
+			return limit.enable == this.supplyCurrentLimitEnabled
+				&& DeviceConfigurator.matches(limit.currentLimit, this.supplyCurrentLimit)
+				&& DeviceConfigurator.matches(limit.triggerThresholdCurrent, this.supplyCurrentTrigger)
+				&& DeviceConfigurator.matches(limit.triggerThresholdTime, this.supplyCurrentTriggerTime);
+		}
+
+		// The SRX stores the supply limit as its continuous and peak limits
+		final TalonSRXConfiguration srx = (TalonSRXConfiguration)current;
+		return srx.continuousCurrentLimit == (int)this.supplyCurrentLimit
+			&& srx.peakCurrentLimit == (int)this.supplyCurrentTrigger;
+	}
+
+	/// @return every setting on `talon`, or null if it did not answer
+	private static BaseTalonConfiguration read(BaseTalon talon, int timeoutMs) {
+		if(talon instanceof TalonFX) {
+			final TalonFXConfiguration config = new TalonFXConfiguration();
+			return ((TalonFX)talon).getAllConfigs(config, timeoutMs) == ErrorCode.OK ? config : null;
+		} else {
+			final TalonSRXConfiguration config = new TalonSRXConfiguration();
+			return ((TalonSRX)talon).getAllConfigs(config, timeoutMs) == ErrorCode.OK ? config : null;
+		}
+	}
+
+	private static ErrorCode first(ErrorCode previous, ErrorCode next) {
+		return previous != ErrorCode.OK ? previous : next;
+	}
+}
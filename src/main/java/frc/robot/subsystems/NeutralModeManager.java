@@ -0,0 +1,86 @@
+package frc.robot.subsystems;
+
+import java.util.function.Supplier;
+
+import com.ctre.phoenix.motorcontrol.NeutralMode;
+import com.ctre.phoenix.motorcontrol.can.BaseMotorController;
+
+/**
+ * Owns the neutral mode of a group of motor controllers and only talks to them on a change.
+ *
+ * Every `setNeutralMode` call is a CAN frame per controller, even when the mode is already set,
+ * so commands that request a mode every loop would otherwise flood the bus. The last mode sent
+ * to each controller is remembered, and requests that match it are dropped.
+ *
+ * The mode comes either from explicit requests or, while one is installed, from a policy that
+ * is evaluated once per {@link #update()}.
+ */
+public final class NeutralModeManager {
+	private final BaseMotorController[] controllers;
+
+	// Last mode sent to each controller, null when unknown
+	private final NeutralMode[] sent;
+
+	private NeutralMode requested;
+	private NeutralMode current;
+	private Supplier<NeutralMode> policy;
+
+	// Set from configuration threads when a controller may have been reset behind our back
+	private volatile boolean stale;
+
+	public NeutralModeManager(NeutralMode initial, BaseMotorController... controllers) {
+		this.controllers = controllers;
+		this.sent = new NeutralMode[controllers.length];
+		this.requested = initial;
+		this.current = initial;
+	}
+
+	/// Requests `mode`, sending it right away to any controller not already in it. While a policy is installed it is only remembered for when the policy is cleared.
+	public void set(NeutralMode mode) {
+		this.requested = mode;
+
+		// The policy decides on the next update, sending this now would only flip the controllers back and forth
+		if(this.policy == null) this.apply(mode);
+	}
+
+	/// Picks the mode from `policy` on every {@link #update()} instead of from {@link #set}
+	public void setPolicy(Supplier<NeutralMode> policy) {
+		this.policy = policy;
+	}
+
+	public void clearPolicy() {
+		this.policy = null;
+		this.apply(this.requested);
+	}
+
+	/// The mode the controllers were last told to use
+	public NeutralMode get() {
+		return this.current;
+	}
+
+	/// Forgets what each controller was sent, so the next update sends the mode again
+	public void invalidate() {
+		this.stale = true;
+	}
+
+	/// Evaluates the policy, if any, and sends whatever changed. Call once per loop.
+	public void update() {
+		this.apply(this.policy != null ? this.policy.get() : this.requested);
+	}
+
+	private void apply(NeutralMode mode) {
+		this.current = mode;
+
+		if(this.stale) {
+			this.stale = false;
+			for(int i = 0; i < this.sent.length; i++) this.sent[i] = null;
+		}
+
+		for(int i = 0; i < this.controllers.length; i++) {
+			if(this.sent[i] == mode) continue;
+
+			this.controllers[i].setNeutralMode(mode);
+			this.sent[i] = mode;
+		}
+	}
+}
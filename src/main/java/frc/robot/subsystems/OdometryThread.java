@@ -0,0 +1,46 @@
+package frc.robot.subsystems;
+
+import edu.wpi.first.wpilibj.Notifier;
+
+/**
+ * Samples the drivetrain encoders and gyro and integrates odometry on its own
+ * Notifier, faster than the main loop runs.
+ *
+ * Integrating at a higher rate cuts the error from assuming the robot drove in a
+ * straight arc between samples, which is worst during fast turns in high gear.
+ * Note that a sample can only be as fresh as the CAN status frames it reads, so the
+ * feedback and yaw frames need to be sent at least as often as this thread runs.
+ */
+public class OdometryThread {
+	private final Drivetrain drivetrain;
+	private final double period;
+
+	// Owned by the notifier thread, the main loop has its own snapshot
+	private final DrivetrainInputs inputs = new DrivetrainInputs();
+
+	private final Notifier notifier;
+
+	/**
+	 * @param frequency how often to sample, in Hz
+	 */
+	public OdometryThread(Drivetrain drivetrain, double frequency) {
+		this.drivetrain = drivetrain;
+		this.period = 1.0 / frequency;
+
+		this.notifier = new Notifier(this::sample);
+		this.notifier.setName("Odometry");
+	}
+
+	public void start() {
+		this.notifier.startPeriodic(this.period);
+	}
+
+	public void stop() {
+		this.notifier.stop();
+	}
+
+	private void sample() {
+		this.drivetrain.readInputs(this.inputs);
+		this.drivetrain.updateOdometry(this.inputs);
+	}
+}
@@ -0,0 +1,83 @@
+package frc.robot.subsystems;
+
+import edu.wpi.first.math.estimator.DifferentialDrivePoseEstimator;
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.kinematics.DifferentialDriveOdometry;
+import frc.robot.Constants.DrivetrainConstants;
+
+/**
+ * Wheel odometry, the vision-fused pose estimator and the pose history behind it, with no
+ * hardware attached.
+ *
+ * {@link Drivetrain} feeds this from its sensor snapshot every loop, and the replay tool in
+ * `frc.robot.sim` feeds it from a flight recording, so a replay runs exactly the estimation the
+ * robot ran. Nothing here reads a clock or a device, every time comes from the caller.
+ *
+ * Not thread safe, Drivetrain guards it with its odometry lock.
+ */
+public final class PoseEstimation {
+	private final DifferentialDriveOdometry odometry;
+	private final DifferentialDrivePoseEstimator poseEstimator;
+	private final PoseHistory poseHistory = new PoseHistory(DrivetrainConstants.poseHistoryCapacity);
+	private final VisionFusion visionFusion = new VisionFusion(this.poseHistory);
+
+	private Pose2d encoderPose;
+	private Pose2d estimatedPose;
+
+	/**
+	 * @param yaw the gyro heading the wheel distances start from
+	 * @param initialEstimate where the pose estimator starts, odometry always starts at the origin
+	 */
+	public PoseEstimation(Rotation2d yaw, Pose2d initialEstimate) {
+		this.odometry = new DifferentialDriveOdometry(yaw, 0, 0);
+		this.poseEstimator = new DifferentialDrivePoseEstimator(DrivetrainConstants.driveKinematics, yaw, 0, 0, initialEstimate);
+
+		this.encoderPose = this.odometry.getPoseMeters();
+		this.estimatedPose = this.poseEstimator.getEstimatedPosition();
+	}
+
+	/// Integrates one sensor sample, taken at `timestamp` in FPGA seconds
+	public void update(double timestamp, Rotation2d yaw, double leftDistanceMeters, double rightDistanceMeters) {
+		this.encoderPose = this.odometry.update(yaw, leftDistanceMeters, rightDistanceMeters);
+		this.estimatedPose = this.poseEstimator.updateWithTime(timestamp, yaw, leftDistanceMeters, rightDistanceMeters);
+		this.poseHistory.record(timestamp, this.estimatedPose, leftDistanceMeters, rightDistanceMeters);
+	}
+
+	/**
+	 * Queues a vision measurement for the next {@link #fuseVision()}.
+	 *
+	 * @return whether it was accepted, rather than rejected as an outlier
+	 */
+	public boolean addVision(VisionMeasurement measurement) {
+		return this.visionFusion.add(measurement);
+	}
+
+	/// Fuses every queued vision measurement into the estimate
+	public void fuseVision() {
+		this.visionFusion.flush(this.poseEstimator);
+		this.estimatedPose = this.poseEstimator.getEstimatedPosition();
+	}
+
+	/// Moves wheel odometry to `pose`, with the wheel distances starting over from zero. The estimate is left alone.
+	public void resetOdometry(Rotation2d yaw, Pose2d pose) {
+		this.odometry.resetPosition(yaw, 0, 0, pose);
+		this.encoderPose = this.odometry.getPoseMeters();
+	}
+
+	public Pose2d getEncoderPose() {
+		return this.encoderPose;
+	}
+
+	public Pose2d getEstimatedPose() {
+		return this.estimatedPose;
+	}
+
+	public PoseHistory getPoseHistory() {
+		return this.poseHistory;
+	}
+
+	public VisionFusion getVisionFusion() {
+		return this.visionFusion;
+	}
+}
@@ -0,0 +1,178 @@
+package frc.robot.subsystems;
+
+import edu.wpi.first.math.MathUtil;
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
+
+/**
+ * A fixed-capacity history of robot poses and wheel distances, backed by primitive
+ * arrays so that recording and looking up samples never allocates.
+ *
+ * Once full, each new sample overwrites the oldest one. Lookups binary search by
+ * timestamp and interpolate between the two samples on either side.
+ */
+public final class PoseHistory {
+	/** A single, reusable history entry */
+	public static final class Sample {
+		/// FPGA time, in seconds
+		public double timestamp;
+
+		// Field position in meters, heading in radians
+		public double x;
+		public double y;
+		public double heading;
+
+		// Wheel distances in meters
+		public double leftDistance;
+		public double rightDistance;
+
+		public Pose2d toPose2d() {
+			return new Pose2d(this.x, this.y, new Rotation2d(this.heading));
+		}
+	}
+
+	private final int capacity;
+
+	private final double[] timestamps;
+	private final double[] xs;
+	private final double[] ys;
+	private final double[] headings;
+	private final double[] leftDistances;
+	private final double[] rightDistances;
+
+	// Physical index of the oldest sample
+	private int start = 0;
+	private int size = 0;
+
+	public PoseHistory(int capacity) {
+		this.capacity = capacity;
+
+		this.timestamps = new double[capacity];
+		this.xs = new double[capacity];
+		this.ys = new double[capacity];
+		this.headings = new double[capacity];
+		this.leftDistances = new double[capacity];
+		this.rightDistances = new double[capacity];
+	}
+
+	/**
+	 * Records a sample. Samples must be recorded in increasing timestamp order;
+	 * anything at or before the newest sample is ignored.
+	 */
+	public void record(double timestamp, double x, double y, double heading, double leftDistance, double rightDistance) {
+		if(this.size > 0 && timestamp <= this.timestamps[this.index(this.size - 1)]) return;
+
+		final int index;
+		if(this.size < this.capacity) {
+			index = this.index(this.size);
+			this.size++;
+		} else {
+			// Full, overwrite the oldest sample
+			index = this.start;
+			this.start = this.index(1);
+		}
+
+		this.timestamps[index] = timestamp;
+		this.xs[index] = x;
+		this.ys[index] = y;
+		this.headings[index] = heading;
+		this.leftDistances[index] = leftDistance;
+		this.rightDistances[index] = rightDistance;
+	}
+
+	public void record(double timestamp, Pose2d pose, double leftDistance, double rightDistance) {
+		this.record(timestamp, pose.getX(), pose.getY(), pose.getRotation().getRadians(), leftDistance, rightDistance);
+	}
+
+	/**
+	 * Looks up the state of the robot at `timestamp`, interpolating between the
+	 * surrounding samples. Times outside the history are clamped to the oldest or
+	 * newest sample.
+	 *
+	 * @param out the sample to write the result into
+	 * @return false if the history is empty or `timestamp` was outside of it
+	 */
+	public boolean sample(double timestamp, Sample out) {
+		if(this.size == 0) return false;
+
+		final int oldest = this.start;
+		final int newest = this.index(this.size - 1);
+
+		if(timestamp <= this.timestamps[oldest]) {
+			this.copy(oldest, out);
+			return timestamp == this.timestamps[oldest];
+		}
+
+		if(timestamp >= this.timestamps[newest]) {
+			this.copy(newest, out);
+			return timestamp == this.timestamps[newest];
+		}
+
+		// Find the first sample at or after timestamp, the one before it is guaranteed to exist
+		int low = 1;
+		int high = this.size - 1;
+		while(low < high) {
+			final int mid = (low + high) >>> 1;
+
+			if(this.timestamps[this.index(mid)] < timestamp) low = mid + 1;
+			else high = mid;
+		}
+
+		final int after = this.index(low);
+		final int before = this.index(low - 1);
+		final double t = (timestamp - this.timestamps[before]) / (this.timestamps[after] - this.timestamps[before]);
+
+		out.timestamp = timestamp;
+		out.x = MathUtil.interpolate(this.xs[before], this.xs[after], t);
+		out.y = MathUtil.interpolate(this.ys[before], this.ys[after], t);
+		out.heading = MathUtil.angleModulus(this.headings[before] + MathUtil.angleModulus(this.headings[after] - this.headings[before]) * t);
+		out.leftDistance = MathUtil.interpolate(this.leftDistances[before], this.leftDistances[after], t);
+		out.rightDistance = MathUtil.interpolate(this.rightDistances[before], this.rightDistances[after], t);
+
+		return true;
+	}
+
+	/// Writes the newest sample into `out`, returning false if the history is empty
+	public boolean latest(Sample out) {
+		if(this.size == 0) return false;
+
+		this.copy(this.index(this.size - 1), out);
+		return true;
+	}
+
+	public void clear() {
+		this.start = 0;
+		this.size = 0;
+	}
+
+	public int size() {
+		return this.size;
+	}
+
+	public int capacity() {
+		return this.capacity;
+	}
+
+	public double getOldestTimestamp() {
+		return this.size == 0 ? Double.NaN : this.timestamps[this.start];
+	}
+
+	public double getNewestTimestamp() {
+		return this.size == 0 ? Double.NaN : this.timestamps[this.index(this.size - 1)];
+	}
+
+	private void copy(int index, Sample out) {
+		out.timestamp = this.timestamps[index];
+		out.x = this.xs[index];
+		out.y = this.ys[index];
+		out.heading = this.headings[index];
+		out.leftDistance = this.leftDistances[index];
+		out.rightDistance = this.rightDistances[index];
+	}
+
+	/// Converts a logical index, 0 being the oldest sample, to a physical array index
+	private int index(int logical) {
+		final int index = this.start + logical;
+		return index >= this.capacity ? index - this.capacity : index;
+	}
+}
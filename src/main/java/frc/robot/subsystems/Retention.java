@@ -0,0 +1,46 @@
+package frc.robot.subsystems;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+/**
+ * Keeps a directory of per-boot files under a size budget by deleting the oldest first.
+ *
+ * Files are ordered by when they were last written. The roboRIO's clock only becomes real once
+ * the Driver Station sets it, so files written before that sort as the oldest and go first.
+ */
+public final class Retention {
+	private Retention() {}
+
+	/**
+	 * Deletes the oldest files in `directory` whose names start with `prefix` until the rest add up to at most `budgetBytes`.
+	 *
+	 * @param keep a file that is never deleted, such as the one being written, or null
+	 * @return the number of files deleted
+	 */
+	public static int prune(Path directory, String prefix, long budgetBytes, Path keep) throws IOException {
+		final ArrayList<Path> files = new ArrayList<>();
+		try(Stream<Path> list = Files.list(directory)) {
+			list.filter(file -> file.getFileName().toString().startsWith(prefix) && !file.equals(keep) && Files.isRegularFile(file)).forEach(files::add);
+		}
+
+		// Newest first, so whatever is left over budget at the end of the list goes
+		files.sort(Comparator.comparing((Path file) -> file.toFile().lastModified()).reversed());
+
+		long total = 0;
+		int deleted = 0;
+		for(final Path file : files) {
+			total += Files.size(file);
+			if(total <= budgetBytes) continue;
+
+			Files.deleteIfExists(file);
+			deleted++;
+		}
+
+		return deleted;
+	}
+}
@@ -0,0 +1,200 @@
+package frc.robot.subsystems;
+
+import java.util.ArrayList;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import com.ctre.phoenix.ErrorCode;
+import com.ctre.phoenix.motorcontrol.StatusFrameEnhanced;
+import com.ctre.phoenix.motorcontrol.can.BaseTalon;
+import com.ctre.phoenix.sensors.CANCoderStatusFrame;
+import com.ctre.phoenix.sensors.PigeonIMU_StatusFrame;
+import com.ctre.phoenix.sensors.WPI_CANCoder;
+import com.ctre.phoenix.sensors.WPI_Pigeon2;
+
+import frc.robot.Constants.StatusFrameConstants;
+
+/**
+ * Declares which CAN status frames each device needs, and how often, in every robot mode.
+ *
+ * CTRE devices broadcast every status frame at its factory period whether or not anything
+ * reads it, so followers and sensors nobody polls still take up bus time. Declaring the
+ * frames here lets the ones we do read, like drivetrain feedback and Pigeon yaw, arrive
+ * with less jitter. Frames that are never declared keep their factory period.
+ *
+ * Periods are only sent when they change, so applying a mode that matches the last one is free.
+ * A device that resets goes back to its factory periods, so {@link #invalidate} has its periods
+ * sent again on the next {@link #update()}.
+ */
+public final class StatusFramePolicy {
+	public enum Mode {
+		Disabled,
+		Autonomous,
+		Teleop,
+		Test;
+	}
+
+	/// Sends one status frame period to a device, matching the CTRE `setStatusFramePeriod` signature
+	@FunctionalInterface
+	public interface FrameSender<F> {
+		ErrorCode send(F frame, int periodMs, int timeoutMs);
+	}
+
+	private static final class Rule<F> {
+		private final String name;
+		private final Object device;
+		private final FrameSender<F> sender;
+		private final F frame;
+		private final int[] periods = new int[Mode.values().length];
+
+		// Last period the device acknowledged, or -1 to force the next apply to send
+		private int applied = -1;
+
+		private Rule(String name, Object device, FrameSender<F> sender, F frame) {
+			this.name = name;
+			this.device = device;
+			this.sender = sender;
+			this.frame = frame;
+		}
+
+		/// @return whether a new period was sent
+		private boolean apply(Mode mode, int timeoutMs) {
+			final int period = this.periods[mode.ordinal()];
+			if(period == this.applied) return false;
+
+			final ErrorCode error = this.sender.send(this.frame, period, timeoutMs);
+
+			// With no timeout the device cannot acknowledge, so assume it arrived
+			if(error == ErrorCode.OK || timeoutMs == 0) {
+				this.applied = period;
+			} else {
+				this.applied = -1;
+				Log.warning("Status frame " + this.name + " " + this.frame + " rejected: " + error);
+			}
+
+			return true;
+		}
+	}
+
+	/// Frame declarations for a single device
+	public final class Device<F> {
+		private final String name;
+		private final Object device;
+		private final FrameSender<F> sender;
+
+		private Device(String name, Object device, FrameSender<F> sender) {
+			this.name = name;
+			this.device = device;
+			this.sender = sender;
+		}
+
+		/// Sends `frame` every `periodMs` in every mode
+		public Device<F> frame(F frame, int periodMs) {
+			for(final Mode mode : Mode.values()) this.frame(frame, mode, periodMs);
+			return this;
+		}
+
+		/// Sends `frame` every `periodMs` in `mode`, overriding any earlier declaration for that mode
+		public Device<F> frame(F frame, Mode mode, int periodMs) {
+			this.rule(frame).periods[mode.ordinal()] = periodMs;
+			return this;
+		}
+
+		@SuppressWarnings("unchecked")
+		private Rule<F> rule(F frame) {
+			for(final Rule<?> rule : StatusFramePolicy.this.rules) {
+				if(rule.sender == this.sender && rule.frame == frame) return (Rule<F>)rule;
+			}
+
+			final Rule<F> rule = new Rule<>(this.name, this.device, this.sender, frame);
+			StatusFramePolicy.this.rules.add(rule);
+			return rule;
+		}
+	}
+
+	private final ArrayList<Rule<?>> rules = new ArrayList<>();
+	private Mode mode;
+
+	// Devices that reset since the last update, from whichever thread reapplied their configuration
+	private final ConcurrentLinkedQueue<Object> invalidated = new ConcurrentLinkedQueue<>();
+
+	/// Frames for `device`, sent through `sender`. `device` identifies it to {@link #invalidate}.
+	public <F> Device<F> device(String name, Object device, FrameSender<F> sender) {
+		return new Device<>(name, device, sender);
+	}
+
+	public Device<StatusFrameEnhanced> talon(String name, BaseTalon talon) {
+		return this.device(name, talon, talon::setStatusFramePeriod);
+	}
+
+	/// A Talon that mirrors its leader, so nothing reads it back
+	public Device<StatusFrameEnhanced> follower(String name, BaseTalon talon) {
+		return this.talon(name, talon)
+			.frame(StatusFrameEnhanced.Status_1_General, StatusFrameConstants.slow)
+			.frame(StatusFrameEnhanced.Status_2_Feedback0, StatusFrameConstants.off)
+			.frame(StatusFrameEnhanced.Status_4_AinTempVbat, StatusFrameConstants.off)
+			.frame(StatusFrameEnhanced.Status_10_Targets, StatusFrameConstants.off)
+			.frame(StatusFrameEnhanced.Status_12_Feedback1, StatusFrameConstants.off)
+			.frame(StatusFrameEnhanced.Status_13_Base_PIDF0, StatusFrameConstants.off)
+			.frame(StatusFrameEnhanced.Status_14_Turn_PIDF1, StatusFrameConstants.off)
+			.frame(StatusFrameEnhanced.Status_Brushless_Current, StatusFrameConstants.off);
+	}
+
+	public Device<PigeonIMU_StatusFrame> pigeon(String name, WPI_Pigeon2 pigeon) {
+		return this.device(name, pigeon, pigeon::setStatusFramePeriod);
+	}
+
+	public Device<CANCoderStatusFrame> canCoder(String name, WPI_CANCoder canCoder) {
+		return this.device(name, canCoder, canCoder::setStatusFramePeriod);
+	}
+
+	/**
+	 * Sends every declared period for `mode` and waits for each device to acknowledge it.
+	 * Call once at startup, before the devices are relied on.
+	 */
+	public void configure(Mode mode) {
+		this.apply(mode, StatusFrameConstants.configTimeoutMs);
+	}
+
+	/**
+	 * Sends only the periods that differ from the current mode, without waiting on the
+	 * devices so that switching modes never stalls the main loop.
+	 */
+	public void setMode(Mode mode) {
+		if(mode == this.mode) return;
+
+		this.apply(mode, 0);
+	}
+
+	public Mode getMode() {
+		return this.mode;
+	}
+
+	/// Marks every period declared for `device` as lost, such as after it reset to factory settings. Any thread may call this.
+	public void invalidate(Object device) {
+		this.invalidated.add(device);
+	}
+
+	/// Sends the current mode's periods again to any device invalidated since the last call, without waiting on it. Call once per loop.
+	public void update() {
+		if(this.invalidated.isEmpty() || this.mode == null) return;
+
+		for(Object device = this.invalidated.poll(); device != null; device = this.invalidated.poll()) {
+			for(final Rule<?> rule : this.rules) {
+				if(rule.device == device) rule.applied = -1;
+			}
+		}
+
+		this.apply(this.mode, 0);
+	}
+
+	private void apply(Mode mode, int timeoutMs) {
+		this.mode = mode;
+
+		int sent = 0;
+		for(final Rule<?> rule : this.rules) {
+			if(rule.apply(mode, timeoutMs)) sent++;
+		}
+
+		if(sent > 0) Log.writeln("[Status Frames] " + mode + ": " + sent + " updated");
+	}
+}
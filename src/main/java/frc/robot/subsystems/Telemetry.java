@@ -1,37 +1,241 @@
 package frc.robot.subsystems;
 
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.function.BooleanSupplier;
+import java.util.function.DoubleSupplier;
 import java.util.function.Supplier;
 
+import edu.wpi.first.networktables.BooleanPublisher;
+import edu.wpi.first.networktables.DoubleArrayPublisher;
+import edu.wpi.first.networktables.DoublePublisher;
 import edu.wpi.first.networktables.NetworkTable;
+import edu.wpi.first.networktables.StringPublisher;
 import edu.wpi.first.wpilibj2.command.SubsystemBase;
 
 public final class Telemetry extends SubsystemBase {
-	public static class TelemetryData {
-		protected String name;
-		protected Supplier<Object> supplier;
-		protected boolean lazy;
+	/// Doubles that move less than this since they were last published are not published again
+	public static final double defaultTolerance = 1e-4;
 
-		protected TelemetryData(String name, Supplier<Object> supplier, boolean lazy) {
+	/// The most entries published in a single loop, across every rate
+	public static int maxPublishesPerLoop = 24;
+
+	/**
+	 * How often an entry is sampled and published, assuming the 50Hz main loop.
+	 *
+	 * Entries within a rate are spread round-robin over its period, so 10 `Medium` entries
+	 * cost 2 publishes per loop rather than 10 every fifth loop.
+	 */
+	public enum Rate {
+		/// Every loop, 50Hz
+		Fast(1),
+		/// Every 5 loops, 10Hz
+		Medium(5),
+		/// Every 50 loops, 1Hz
+		Slow(50),
+		/// Only when the owner calls {@link TelemetryData#publish()}, for values that change on events
+		OnChange(0);
+
+		private final int loops;
+
+		private Rate(int loops) {
+			this.loops = loops;
+		}
+	}
+
+	private static final class Tier {
+		private final Rate rate;
+		private final ArrayList<TelemetryData> entries = new ArrayList<>();
+		private int cursor;
+
+		// Publishes owed so far, each loop adds size/loops and the whole part is published
+		private double owed;
+
+		private Tier(Rate rate) {
+			this.rate = rate;
+		}
+
+		/// Publishes this loop's share of the tier, returning how much of the budget is left
+		private int publish(int budget) {
+			final int size = this.entries.size();
+			if(size == 0) return budget;
+
+			// Every entry comes around once per period on average, even when the tier is smaller than the period
+			this.owed += (double)size / this.rate.loops;
+			final int due = (int)this.owed;
+
+			int published = 0;
+			for(; published < due && budget > 0; published++, budget--) {
+				if(this.cursor >= size) this.cursor = 0;
+				this.entries.get(this.cursor++).publish();
+			}
+
+			// Whatever the budget cut off is owed next loop, but never more than one pass over the tier
+			this.owed = Math.min(this.owed - published, size);
+
+			return budget;
+		}
+	}
+
+	/**
+	 * A single tracked value, bound to its NetworkTables publisher when it is created.
+	 *
+	 * Values are only sent when they change, so a value that sits still costs a supplier call
+	 * and a comparison per loop instead of a network write.
+	 */
+	public static abstract class TelemetryData {
+		protected final String name;
+		protected final Rate rate;
+
+		// Nothing has been published yet, so the first publish always goes out
+		protected boolean published;
+
+		protected TelemetryData(String name, Rate rate) {
 			this.name = name;
+			this.rate = rate;
+		}
+
+		/// Samples the value and publishes it if it changed
+		public abstract void publish();
+
+		protected abstract void close();
+	}
+
+	public static final class DoubleData extends TelemetryData {
+		private final DoubleSupplier supplier;
+		private final double tolerance;
+		private final DoublePublisher publisher;
+		private double last;
+
+		private DoubleData(String name, DoubleSupplier supplier, double tolerance, Rate rate) {
+			super(name, rate);
+			this.supplier = supplier;
+			this.tolerance = tolerance;
+			this.publisher = Telemetry.instance.table.getDoubleTopic(name).publish();
+		}
+
+		@Override
+		public void publish() {
+			final double value = this.supplier.getAsDouble();
+			if(this.published && Math.abs(value - this.last) <= this.tolerance) return;
+
+			this.publisher.set(value);
+			this.last = value;
+			this.published = true;
+		}
+
+		@Override
+		protected void close() {
+			this.publisher.close();
+		}
+	}
+
+	public static final class BooleanData extends TelemetryData {
+		private final BooleanSupplier supplier;
+		private final BooleanPublisher publisher;
+		private boolean last;
+
+		private BooleanData(String name, BooleanSupplier supplier, Rate rate) {
+			super(name, rate);
+			this.supplier = supplier;
+			this.publisher = Telemetry.instance.table.getBooleanTopic(name).publish();
+		}
+
+		@Override
+		public void publish() {
+			final boolean value = this.supplier.getAsBoolean();
+			if(this.published && value == this.last) return;
+
+			this.publisher.set(value);
+			this.last = value;
+			this.published = true;
+		}
+
+		@Override
+		protected void close() {
+			this.publisher.close();
+		}
+	}
+
+	public static final class StringData extends TelemetryData {
+		private final Supplier<String> supplier;
+		private final StringPublisher publisher;
+		private String last;
+
+		private StringData(String name, Supplier<String> supplier, Rate rate) {
+			super(name, rate);
 			this.supplier = supplier;
-			this.lazy = lazy;
+			this.publisher = Telemetry.instance.table.getStringTopic(name).publish();
 		}
 
+		@Override
 		public void publish() {
-			Telemetry.instance.table.getEntry(this.name).setValue(this.supplier.get());
+			final String value = this.supplier.get();
+			if(this.published && (value == this.last || (value != null && value.equals(this.last)))) return;
+
+			this.publisher.set(value);
+			this.last = value;
+			this.published = true;
 		}
 
-		public void publish(Object value) {
-			Telemetry.instance.table.getEntry(this.name).setValue(value);
+		@Override
+		protected void close() {
+			this.publisher.close();
+		}
+	}
+
+	public static final class DoubleArrayData extends TelemetryData {
+		private final Supplier<double[]> supplier;
+		private final double tolerance;
+		private final DoubleArrayPublisher publisher;
+
+		// Our own copy, suppliers are free to reuse the array they return
+		private double[] last = new double[0];
+
+		private DoubleArrayData(String name, Supplier<double[]> supplier, double tolerance, Rate rate) {
+			super(name, rate);
+			this.supplier = supplier;
+			this.tolerance = tolerance;
+			this.publisher = Telemetry.instance.table.getDoubleArrayTopic(name).publish();
+		}
+
+		@Override
+		public void publish() {
+			final double[] value = this.supplier.get();
+			if(this.published && this.unchanged(value)) return;
+
+			this.publisher.set(value);
+			if(this.last.length != value.length) this.last = new double[value.length];
+			System.arraycopy(value, 0, this.last, 0, value.length);
+			this.published = true;
+		}
+
+		private boolean unchanged(double[] value) {
+			if(value.length != this.last.length) return false;
+
+			for(int i = 0; i < value.length; i++) {
+				if(Math.abs(value[i] - this.last[i]) > this.tolerance) return false;
+			}
+
+			return true;
+		}
+
+		@Override
+		protected void close() {
+			this.publisher.close();
 		}
 	}
 
 	private static Telemetry instance;
 
 	private NetworkTable table;
+
+	// Looked up by name only when tracking, the tiers are what get walked every loop
 	private Map<String, TelemetryData> telemetry = new HashMap<>();
+	private final Tier[] tiers = { new Tier(Rate.Fast), new Tier(Rate.Medium), new Tier(Rate.Slow) };
+
+	private final LoopProfiler.Section profile = LoopProfiler.section("Telemetry");
 
 	private Telemetry(NetworkTable table) {
 		this.table = table;
@@ -43,19 +247,67 @@ public final class Telemetry extends SubsystemBase {
 		Telemetry.instance = new Telemetry(table);
 	}
 
-	public static TelemetryData track(String name, Supplier<Object> supplier, boolean lazy) {
-		TelemetryData telem = new TelemetryData(name, supplier, lazy);
-		Telemetry.instance.telemetry.put(name, telem);
+	public static DoubleData track(String name, DoubleSupplier supplier, double tolerance, Rate rate) {
+		return Telemetry.add(new DoubleData(name, supplier, tolerance, rate));
+	}
 
-		if(!lazy) telem.publish();
+	public static DoubleData track(String name, DoubleSupplier supplier, Rate rate) {
+		return Telemetry.track(name, supplier, Telemetry.defaultTolerance, rate);
+	}
+
+	public static BooleanData track(String name, BooleanSupplier supplier, Rate rate) {
+		return Telemetry.add(new BooleanData(name, supplier, rate));
+	}
+
+	public static StringData track(String name, Supplier<String> supplier, Rate rate) {
+		return Telemetry.add(new StringData(name, supplier, rate));
+	}
+
+	public static DoubleArrayData trackArray(String name, Supplier<double[]> supplier, Rate rate) {
+		return Telemetry.add(new DoubleArrayData(name, supplier, Telemetry.defaultTolerance, rate));
+	}
+
+	// `lazy` entries are only published on demand, everything else every loop
+
+	public static DoubleData track(String name, DoubleSupplier supplier, boolean lazy) {
+		return Telemetry.track(name, supplier, lazy ? Rate.OnChange : Rate.Fast);
+	}
+
+	public static BooleanData track(String name, BooleanSupplier supplier, boolean lazy) {
+		return Telemetry.track(name, supplier, lazy ? Rate.OnChange : Rate.Fast);
+	}
+
+	public static StringData track(String name, Supplier<String> supplier, boolean lazy) {
+		return Telemetry.track(name, supplier, lazy ? Rate.OnChange : Rate.Fast);
+	}
+
+	public static DoubleArrayData trackArray(String name, Supplier<double[]> supplier, boolean lazy) {
+		return Telemetry.trackArray(name, supplier, lazy ? Rate.OnChange : Rate.Fast);
+	}
+
+	private static <T extends TelemetryData> T add(T telem) {
+		final TelemetryData previous = Telemetry.instance.telemetry.put(telem.name, telem);
+		if(previous != null) {
+			if(previous.rate != Rate.OnChange) Telemetry.instance.tiers[previous.rate.ordinal()].entries.remove(previous);
+			previous.close();
+		}
+
+		if(telem.rate != Rate.OnChange) {
+			Telemetry.instance.tiers[telem.rate.ordinal()].entries.add(telem);
+			telem.publish();
+		}
 
 		return telem;
 	}
 
 	@Override
 	public void periodic() {
-		for(TelemetryData data : this.telemetry.values()) {
-			if(!data.lazy) data.publish();
-		}
+		// Faster tiers go first, so a tight budget starves the slow entries rather than the fast ones
+		this.profile.start();
+
+		int budget = Telemetry.maxPublishesPerLoop;
+		for(final Tier tier : this.tiers) budget = tier.publish(budget);
+
+		this.profile.stop();
 	}
 }
@@ -89,7 +89,8 @@ public class TrajectoryRunner {
 				else if(direction == Direction.Center) endPose = tag.plus(FieldConstants.centerBlueOffset);
 			}
 
-			Log.writeln("start", startPose, "\nend", tag);
+			Log.event("Trajectory Start", startPose.getX(), startPose.getY(), startPose.getRotation().getDegrees());
+			Log.event("Trajectory Tag", tag.getX(), tag.getY(), tag.getRotation().getDegrees());
 		}
 
 		trajectory = TrajectoryGenerator.generateTrajectory(
@@ -1,25 +1,30 @@
 package frc.robot.subsystems;
 
-import edu.wpi.first.wpilibj.PneumaticsModuleType;
-import edu.wpi.first.wpilibj.Solenoid;
+import java.util.ArrayList;
+import java.util.function.Consumer;
+
 import edu.wpi.first.wpilibj2.command.SubsystemBase;
-import frc.robot.Constants;
 
 public class Transmission extends SubsystemBase {
-	private Solenoid shiftPiston;
+	private final TransmissionIO io;
 	private GearState gearState;
+	private final Telemetry.TelemetryData gearTelemetry;
+
+	// Notified on every gear change, so subsystems do not have to poll the transmission
+	private final ArrayList<Consumer<GearState>> shiftListeners = new ArrayList<>();
 
 	public enum GearState {
 		HIGH,
 		LOW;
 	}
 
-	public Transmission() {
-		this.shiftPiston = new Solenoid(PneumaticsModuleType.REVPH, Constants.PneumaticIDs.drivetrainShiftPiston);
+	public Transmission(TransmissionIO io) {
+		this.io = io;
 
 		this.gearState = GearState.LOW;
 
-		Telemetry.track("Gear", () -> this.gearState.toString(), false);
+		this.gearTelemetry = Telemetry.track("Gear", () -> this.gearState.toString(), Telemetry.Rate.OnChange);
+		this.gearTelemetry.publish();
 	}
 
 	public void shift(GearState state) {
@@ -27,19 +32,29 @@ public class Transmission extends SubsystemBase {
 
 		this.gearState = state;
 
+		this.io.setGear(state);
+
 		switch (state) {
 			case HIGH:
-				this.shiftPiston.set(true);
-
-				Log.writeln("[High Gear]");
+				Log.event("High Gear");
 				break;
 
 			case LOW:
-				this.shiftPiston.set(false);
-
-				Log.writeln("[Low Gear]");
+				Log.event("Low Gear");
 				break;
 		}
+
+		this.gearTelemetry.publish();
+
+		for(int i = 0; i < this.shiftListeners.size(); i++) {
+			this.shiftListeners.get(i).accept(state);
+		}
+	}
+
+	/// Calls `listener` with the current gear immediately, then again after every shift
+	public void onShift(Consumer<GearState> listener) {
+		this.shiftListeners.add(listener);
+		listener.accept(this.gearState);
 	}
 
 	public void setHigh() {
@@ -0,0 +1,42 @@
+package frc.robot.subsystems;
+
+import java.util.function.Consumer;
+
+import edu.wpi.first.wpilibj.PneumaticsModuleType;
+import edu.wpi.first.wpilibj.Solenoid;
+import frc.robot.Constants;
+import frc.robot.subsystems.Transmission.GearState;
+
+/**
+ * Everything {@link Transmission} needs from its shifting piston.
+ */
+public interface TransmissionIO {
+	void setGear(GearState gear);
+
+	/** The shifting piston */
+	public static final class Real implements TransmissionIO {
+		private final Solenoid shiftPiston = new Solenoid(PneumaticsModuleType.REVPH, Constants.PneumaticIDs.drivetrainShiftPiston);
+
+		@Override
+		public void setGear(GearState gear) {
+			this.shiftPiston.set(gear == GearState.HIGH);
+		}
+	}
+
+	/**
+	 * Hands every shift to a model instead of a piston, such as the drivetrain simulation's gearing.
+	 * Replay passes a model that does nothing, the recorded encoder ticks already reflect every shift.
+	 */
+	public static final class Sim implements TransmissionIO {
+		private final Consumer<GearState> model;
+
+		public Sim(Consumer<GearState> model) {
+			this.model = model;
+		}
+
+		@Override
+		public void setGear(GearState gear) {
+			this.model.accept(gear);
+		}
+	}
+}
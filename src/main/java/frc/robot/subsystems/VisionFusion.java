@@ -0,0 +1,123 @@
+package frc.robot.subsystems;
+
+import edu.wpi.first.math.MathUtil;
+import edu.wpi.first.math.estimator.DifferentialDrivePoseEstimator;
+import edu.wpi.first.math.geometry.Pose2d;
+import frc.robot.Constants.VisionConstants;
+
+/**
+ * Collects the vision measurements from every camera over a loop, throws out the
+ * ones that disagree with odometry, and fuses the rest into the pose estimator in
+ * capture order.
+ */
+public class VisionFusion {
+	private final PoseHistory history;
+	private final PoseHistory.Sample predicted = new PoseHistory.Sample();
+
+	private final VisionMeasurement[] batch = new VisionMeasurement[32];
+	private int batchSize = 0;
+
+	// Outliers in a row that agree with each other, and the latest of them
+	private int consecutiveOutliers = 0;
+	private Pose2d lastOutlier;
+
+	private long accepted = 0;
+	private long rejected = 0;
+
+	/**
+	 * @param history the estimated pose history, used to check each measurement against
+	 *                where we thought we were when its image was captured
+	 */
+	public VisionFusion(PoseHistory history) {
+		this.history = history;
+	}
+
+	/**
+	 * Queues a measurement to be fused at the end of the loop.
+	 *
+	 * @return whether the measurement was accepted
+	 */
+	public boolean add(VisionMeasurement measurement) {
+		boolean outlier = false;
+
+		// Without any history there is nothing to compare against, so take the measurement
+		if(this.history.size() > 0) {
+			// Clamps to the oldest sample if the capture is older than the history
+			this.history.sample(measurement.timestamp, this.predicted);
+
+			final double translationError = Math.hypot(measurement.pose.getX() - this.predicted.x, measurement.pose.getY() - this.predicted.y);
+			final double rotationError = Math.abs(MathUtil.angleModulus(measurement.pose.getRotation().getRadians() - this.predicted.heading));
+
+			outlier = translationError > VisionConstants.maxTranslationErrorMeters || rotationError > VisionConstants.maxRotationErrorRadians;
+		}
+
+		if(this.batchSize == this.batch.length) {
+			this.rejected++;
+			return false;
+		}
+
+		if(outlier) {
+			// Only outliers that agree with each other count, a tag seen wrong a different way each time never gets trusted
+			this.consecutiveOutliers = this.lastOutlier != null && VisionFusion.agree(measurement.pose, this.lastOutlier) ? this.consecutiveOutliers + 1 : 1;
+			this.lastOutlier = measurement.pose;
+
+			// If vision keeps agreeing with itself and not odometry it is far more likely that odometry has drifted, so let vision pull it back
+			if(this.consecutiveOutliers <= VisionConstants.maxConsecutiveRejections) {
+				this.rejected++;
+				return false;
+			}
+
+			// But only for a while, then they have to agree again, in case it is a tag that is seen wrong the same way every time
+			if(this.consecutiveOutliers >= VisionConstants.maxConsecutiveRejections + VisionConstants.maxTrustedOutliers) this.resetOutliers();
+		} else {
+			this.resetOutliers();
+		}
+
+		this.accepted++;
+		this.batch[this.batchSize++] = measurement;
+		return true;
+	}
+
+	private void resetOutliers() {
+		this.consecutiveOutliers = 0;
+		this.lastOutlier = null;
+	}
+
+	/// Whether two measurements are within the outlier tolerances of each other
+	private static boolean agree(Pose2d a, Pose2d b) {
+		return Math.hypot(a.getX() - b.getX(), a.getY() - b.getY()) <= VisionConstants.maxTranslationErrorMeters
+			&& Math.abs(MathUtil.angleModulus(a.getRotation().getRadians() - b.getRotation().getRadians())) <= VisionConstants.maxRotationErrorRadians;
+	}
+
+	public long getAccepted() {
+		return this.accepted;
+	}
+
+	public long getRejected() {
+		return this.rejected;
+	}
+
+	/// Fuses every queued measurement, oldest capture first, and empties the batch
+	public void flush(DifferentialDrivePoseEstimator estimator) {
+		// Insertion sort, cameras mostly arrive in order already and the batch is tiny
+		for(int i = 1; i < this.batchSize; i++) {
+			final VisionMeasurement measurement = this.batch[i];
+			int j = i - 1;
+
+			while(j >= 0 && this.batch[j].timestamp > measurement.timestamp) {
+				this.batch[j + 1] = this.batch[j];
+				j--;
+			}
+
+			this.batch[j + 1] = measurement;
+		}
+
+		for(int i = 0; i < this.batchSize; i++) {
+			final VisionMeasurement measurement = this.batch[i];
+			estimator.addVisionMeasurement(measurement.pose, measurement.timestamp, measurement.stdDevs);
+			this.batch[i] = null;
+		}
+
+		this.batchSize = 0;
+	}
+}
@@ -0,0 +1,33 @@
+package frc.robot.subsystems;
+
+import edu.wpi.first.math.Matrix;
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.numbers.N1;
+import edu.wpi.first.math.numbers.N3;
+
+/** A single vision pose observation, ready to hand to the pose estimator */
+public final class VisionMeasurement {
+	/// Name of the Limelight the frame came from
+	public final String camera;
+
+	/// Robot pose reported by the camera
+	public final Pose2d pose;
+
+	/// FPGA time the image was captured at, in seconds
+	public final double timestamp;
+
+	/// Standard deviations (x, y, heading) to fuse the pose with
+	public final Matrix<N3, N1> stdDevs;
+
+	public final int tagCount;
+	public final double averageTagDistance;
+
+	public VisionMeasurement(String camera, Pose2d pose, double timestamp, Matrix<N3, N1> stdDevs, int tagCount, double averageTagDistance) {
+		this.camera = camera;
+		this.pose = pose;
+		this.timestamp = timestamp;
+		this.stdDevs = stdDevs;
+		this.tagCount = tagCount;
+		this.averageTagDistance = averageTagDistance;
+	}
+}
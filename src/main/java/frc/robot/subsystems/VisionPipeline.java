@@ -0,0 +1,104 @@
+package frc.robot.subsystems;
+
+import java.util.function.Consumer;
+
+import edu.wpi.first.math.Matrix;
+import edu.wpi.first.math.VecBuilder;
+import edu.wpi.first.math.numbers.N1;
+import edu.wpi.first.math.numbers.N3;
+import edu.wpi.first.networktables.TimestampedString;
+import frc.robot.Constants.VisionConstants;
+import frc.robot.subsystems.LimelightHelpers.LimelightTarget_Fiducial;
+import frc.robot.subsystems.LimelightHelpers.Results;
+
+/**
+ * Turns Limelight results into pose estimator measurements.
+ *
+ * Each frame is submitted exactly once, timestamped with when the image was
+ * actually captured rather than when we happened to read it, and weighted by
+ * how many tags were seen and how far away they were.
+ */
+public class VisionPipeline {
+	private final Limelight limelight;
+
+	// Only fiducials feed pose estimation, so every other target family is skipped while parsing
+	private final LimelightHelpers.ResultsDecoder decoder = new LimelightHelpers.ResultsDecoder(LimelightHelpers.TargetFamily.Fiducial);
+
+	public VisionPipeline(Limelight limelight) {
+		this.limelight = limelight;
+	}
+
+	/**
+	 * Processes every frame the Limelight published since the last call, oldest first,
+	 * handing each usable one to `sink`. Frames are only ever seen once since they
+	 * come off the subscriber queue.
+	 */
+	public void update(Consumer<VisionMeasurement> sink) {
+		for(TimestampedString frame : this.limelight.readResultsQueue()) {
+			final VisionMeasurement measurement = this.process(this.decoder.decode(frame.value).targetingResults, frame.timestamp / 1e6);
+
+			if(measurement != null) sink.accept(measurement);
+		}
+	}
+
+	/**
+	 * Builds a measurement out of a single frame.
+	 *
+	 * @param received FPGA time the frame arrived over NetworkTables, in seconds
+	 * @return the measurement, or null if the frame should not be fused
+	 */
+	public VisionMeasurement process(Results results, double received) {
+		if(!results.valid) return null;
+
+		final LimelightTarget_Fiducial[] fiducials = results.targets_Fiducials;
+		if(fiducials.length == 0) return null;
+
+		double distance = 0;
+		for(LimelightTarget_Fiducial fiducial : fiducials) {
+			distance += fiducial.getTargetDistance_CameraSpace();
+		}
+		distance /= fiducials.length;
+
+		if(distance > VisionConstants.maxTagDistanceMeters) return null;
+
+		return new VisionMeasurement(
+			this.limelight.getName(),
+			results.getBotPose2d(),
+			VisionPipeline.captureTimestamp(results, received),
+			VisionPipeline.stdDevs(fiducials.length, distance),
+			fiducials.length,
+			distance
+		);
+	}
+
+	/**
+	 * Works out when a frame's image was captured, in FPGA seconds.
+	 *
+	 * Prefers the capture timestamp the Limelight reports on the RIO clock (in milliseconds),
+	 * falling back to subtracting the reported pipeline and capture latencies from the time
+	 * the frame was received when that timestamp is missing or implausible.
+	 */
+	public static double captureTimestamp(Results results, double received) {
+		final double rioCapture = results.timestamp_RIOFPGA_capture / 1000.0;
+
+		if(rioCapture > received - VisionConstants.maxLatencySeconds && rioCapture <= received) return rioCapture;
+
+		return received - (results.latency_pipeline + results.latency_capture) / 1000.0;
+	}
+
+	/// Standard deviations grow with the square of tag distance and shrink with the number of tags in view
+	public static Matrix<N3, N1> stdDevs(int tagCount, double averageTagDistance) {
+		return VisionPipeline.stdDevs(tagCount, averageTagDistance, VisionConstants.baseXYStdDev, VisionConstants.baseThetaStdDev, VisionConstants.distanceStdDevScale);
+	}
+
+	/// The same model with its constants given, so replays can try other values
+	public static Matrix<N3, N1> stdDevs(int tagCount, double averageTagDistance, double baseXYStdDev, double baseThetaStdDev, double distanceStdDevScale) {
+		final double scale = (1 + averageTagDistance * averageTagDistance * distanceStdDevScale) / Math.max(tagCount, 1);
+
+		return VecBuilder.fill(
+			baseXYStdDev * scale,
+			baseXYStdDev * scale,
+			baseThetaStdDev * scale
+		);
+	}
+}
@@ -0,0 +1,76 @@
+package frc.robot.subsystems;
+
+import java.util.EnumSet;
+import java.util.function.Consumer;
+
+import edu.wpi.first.networktables.NetworkTableEvent;
+import edu.wpi.first.networktables.NetworkTableInstance;
+import edu.wpi.first.networktables.NetworkTableListenerPoller;
+import edu.wpi.first.util.WPIUtilJNI;
+import edu.wpi.first.wpilibj.DriverStation;
+import frc.robot.RingBuffer;
+
+/**
+ * Runs every vision pipeline on its own thread so that Limelight traffic, JSON
+ * parsing and pose math never land on the main robot loop.
+ *
+ * The thread sleeps until any camera publishes a new results dump, runs the
+ * pipelines, and pushes the resulting immutable measurements through a lock-free
+ * ring buffer which the main loop drains with `poll`.
+ */
+public class VisionThread {
+	/// How long to wait for NetworkTables before checking the pipelines anyway, in seconds
+	private static final double wakeTimeout = 0.1;
+
+	private final VisionPipeline[] pipelines;
+	private final RingBuffer<VisionMeasurement> measurements = new RingBuffer<>(32);
+	// Bound once, rather than every time the pipelines run
+	private final Consumer<VisionMeasurement> offer = this.measurements::offer;
+	private final NetworkTableListenerPoller poller = new NetworkTableListenerPoller(NetworkTableInstance.getDefault());
+	private final Thread thread;
+
+	public VisionThread(Limelight... limelights) {
+		this.pipelines = new VisionPipeline[limelights.length];
+
+		for(int i = 0; i < limelights.length; i++) {
+			this.pipelines[i] = new VisionPipeline(limelights[i]);
+			this.poller.addListener(limelights[i].getResultsTopic(), EnumSet.of(NetworkTableEvent.Kind.kValueAll));
+		}
+
+		this.thread = new Thread(this::run, "Vision");
+		this.thread.setDaemon(true);
+
+		Telemetry.track("Vision Dropped", this.measurements::getDropped, Telemetry.Rate.Medium);
+	}
+
+	public void start() {
+		this.thread.start();
+	}
+
+	/**
+	 * Takes the oldest measurement the thread has produced. Main loop only.
+	 *
+	 * @return the measurement, or null once every pending measurement has been taken
+	 */
+	public VisionMeasurement poll() {
+		return this.measurements.poll();
+	}
+
+	private void run() {
+		while(!Thread.currentThread().isInterrupted()) {
+			try {
+				WPIUtilJNI.waitForObjectTimeout(this.poller.getHandle(), VisionThread.wakeTimeout);
+
+				// The events are only used as a wakeup, the pipelines read their own subscriber queues
+				this.poller.readQueue();
+
+				for(VisionPipeline pipeline : this.pipelines) pipeline.update(this.offer);
+			} catch(InterruptedException e) {
+				return;
+			} catch(Exception e) {
+				// reportError is safe to call from any thread
+				DriverStation.reportError("Vision thread: " + e, e.getStackTrace());
+			}
+		}
+	}
+}
@@ -0,0 +1,109 @@
+package frc.robot.subsystems;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import edu.wpi.first.hal.HAL;
+import edu.wpi.first.networktables.NetworkTableInstance;
+import edu.wpi.first.wpilibj.simulation.DriverStationSim;
+import frc.robot.Constants.FlightRecorderConstants;
+
+class FlightRecorderTest {
+	// One whole block and part of the next
+	private static final int rows = FlightRecorderConstants.rowsPerBlock + 50;
+
+	@TempDir
+	Path directory;
+
+	private int row;
+
+	@BeforeEach
+	void setup() {
+		HAL.initialize(500, 0);
+		DriverStationSim.setDsAttached(true);
+		DriverStationSim.notifyNewData();
+
+		Log.instance = new Log(50, 1024, 256);
+		Telemetry.start(NetworkTableInstance.getDefault().getTable("Test"));
+	}
+
+	@Test
+	void readsBackWhatWasRecorded() throws Exception {
+		final FlightLog log = FlightLog.read(this.record());
+
+		assertEquals(4, log.columns());
+		assertEquals(FlightRecorderTest.rows, log.rows());
+
+		final int row = log.require("Row");
+		final int half = log.require("Half");
+		final int even = log.require("Even");
+		assertEquals(FlightRecorder.Type.Float64, log.type(row));
+		assertEquals(FlightRecorder.Type.Float32, log.type(half));
+		assertEquals(FlightRecorder.Type.Bool, log.type(even));
+
+		for(int i = 0; i < log.rows(); i++) {
+			assertEquals(i, log.get(row, i));
+			assertEquals(i / 2.0, log.get(half, i));
+			assertEquals(i % 2 == 0 ? 1 : 0, log.get(even, i));
+		}
+	}
+
+	@Test
+	void dropsATruncatedLastBlock() throws Exception {
+		final Path file = this.record();
+
+		// As if power was lost partway through writing the second block
+		final byte[] bytes = Files.readAllBytes(file);
+		final Path truncated = this.directory.resolve("truncated.bin");
+		Files.write(truncated, Arrays.copyOf(bytes, bytes.length - 10));
+
+		final FlightLog log = FlightLog.read(truncated);
+
+		assertEquals(FlightRecorderConstants.rowsPerBlock, log.rows());
+		assertEquals(FlightRecorderConstants.rowsPerBlock - 1, log.get(log.require("Row"), log.rows() - 1));
+	}
+
+	/// Records `rows` rows, waits for the writer to get all of them onto disk, and returns the file
+	private Path record() throws Exception {
+		final FlightRecorder recorder = new FlightRecorder()
+			.precise("Row", () -> this.row)
+			.column("Half", () -> this.row / 2.0)
+			.flag("Even", () -> this.row % 2 == 0);
+
+		recorder.start(this.directory);
+
+		for(this.row = 0; this.row < FlightRecorderTest.rows; this.row++) recorder.sample();
+		recorder.flush();
+
+		final Path file = this.recording();
+
+		// The header, then both blocks written whole
+		long header = 4 + Integer.BYTES * 3;
+		for(final String name : new String[] { "Timestamp", "Row", "Half", "Even" }) header += 1 + Short.BYTES + name.length();
+		final long block = Integer.BYTES + (long)(8 + 8 + 4 + 1) * FlightRecorderConstants.rowsPerBlock;
+
+		final long deadline = System.nanoTime() + 5_000_000_000L;
+		while(Files.size(file) < header + 2 * block) {
+			assertTrue(System.nanoTime() < deadline, "the writer did not finish in time");
+			Thread.sleep(10);
+		}
+
+		return file;
+	}
+
+	private Path recording() throws IOException {
+		try(Stream<Path> files = Files.list(this.directory)) {
+			return files.filter(file -> file.getFileName().toString().startsWith("flight-")).findFirst().orElseThrow();
+		}
+	}
+}
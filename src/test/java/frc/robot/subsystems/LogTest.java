@@ -0,0 +1,80 @@
+package frc.robot.subsystems;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import edu.wpi.first.hal.HAL;
+
+class LogTest {
+	private Log log;
+
+	@BeforeEach
+	void setup() {
+		HAL.initialize(500, 0);
+
+		// No writer thread, so every message stays queued until the test takes it
+		this.log = new Log(50, 4, 32);
+		Log.instance = this.log;
+	}
+
+	@Test
+	void overflowDropsTheOldestMessages() {
+		for(int i = 0; i < 6; i++) Log.event("m", i);
+
+		assertEquals(2, Log.dropped());
+		assertEquals("[m] 2.000\n", this.log.take());
+		assertEquals("[m] 3.000\n", this.log.take());
+		assertEquals("[m] 4.000\n", this.log.take());
+		assertEquals("[m] 5.000\n", this.log.take());
+		assertNull(this.log.take());
+	}
+
+	@Test
+	void queueKeepsEverythingUntilFull() {
+		for(int i = 0; i < 4; i++) Log.event("m", i);
+
+		assertEquals(0, Log.dropped());
+		assertEquals("[m] 0.000\n", this.log.take());
+	}
+
+	@Test
+	void formatsNegativeNumbers() {
+		Log.event("t", -1.5);
+		Log.event("t", -0.0004);
+
+		assertEquals("[t] -1.500\n", this.log.take());
+		assertEquals("[t] -0.000\n", this.log.take());
+	}
+
+	@Test
+	void formatsNaN() {
+		Log.event("t", Double.NaN);
+
+		assertEquals("[t] NaN\n", this.log.take());
+	}
+
+	@Test
+	void formatsValuesOutOfFixedPointRange() {
+		Log.event("t", 1e15, -2.5e16);
+
+		assertEquals("[t] 1.0E15 -2.5E16\n", this.log.take());
+	}
+
+	@Test
+	void roundsToTheLastDecimal() {
+		Log.event("t", 0.9994, 0.99951, 12.3456);
+
+		assertEquals("[t] 0.999 1.000 12.346\n", this.log.take());
+	}
+
+	@Test
+	void cutOffEventsStillEndTheirLine() {
+		Log.event("tag", 123456789.0, 10, 20);
+
+		// 33 characters before the newline, only 31 fit alongside it
+		assertEquals("[tag] 123456789.000 10.000 20.0\n", this.log.take());
+	}
+}